@@ -0,0 +1,57 @@
+package suchagame.benchmark;
+
+import suchagame.ecs.component.FlagComponent;
+import suchagame.ecs.component.TransformComponent;
+import suchagame.ecs.entity.Entity;
+import suchagame.ecs.entity.Mob;
+import suchagame.ecs.system.InputSystem;
+import suchagame.ecs.system.SpawnSystem;
+import suchagame.headless.Headless;
+import suchagame.replay.InputRecording;
+import suchagame.ui.Game;
+import suchagame.utils.Vector2f;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * World shared by the benchmarks: the headless world of a seed, without waves nor input, and with an
+ * invincible player so that the mobs cannot end the game while being measured.
+ */
+class BenchmarkWorld {
+    static final long seed = 42;
+    // side of the square around the player the mobs are spread in, i.e. about the viewport
+    private static final float spread = 480;
+
+    /**
+     * Initializes a new world without display.
+     */
+    static void init() {
+        Headless.init(seed, new InputSystem(new InputRecording(seed)), new SpawnSystem(List.of(), SpawnSystem.defaultTickBudget));
+        Game.em.getPlayer().getComponent(FlagComponent.class).setFlag("invincibility", true);
+    }
+
+    /**
+     * Spawns slimes around the player, active as if they were in the viewport.
+     *
+     * @param count the number of slimes
+     * @return the slimes spawned
+     */
+    static List<Entity> spawnMobs(int count) {
+        SplittableRandom random = new SplittableRandom(seed);
+        Vector2f center = Game.em.getPlayer().getComponent(TransformComponent.class).getPosition();
+        List<Entity> mobs = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Entity mob = Game.em.addEntity(Mob.class, "slime");
+            TransformComponent transformComponent = mob.getComponent(TransformComponent.class);
+            transformComponent.setPosition(new Vector2f(
+                    center.getX() + (float) (random.nextDouble() - 0.5) * spread,
+                    center.getY() + (float) (random.nextDouble() - 0.5) * spread
+            ));
+            transformComponent.setVisible(true);
+            mobs.add(mob);
+        }
+        return mobs;
+    }
+}
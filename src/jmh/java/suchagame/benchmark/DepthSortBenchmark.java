@@ -0,0 +1,104 @@
+package suchagame.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import suchagame.ui.RenderQueue;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark of the depth ordering of the render queue with moving sprites, compared with a full sort
+ * of the draws every frame. Every frame moves the sprites first, as measured alone by the move benchmark.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DepthSortBenchmark {
+    private static final int width = 1920;
+    private static final int height = 1080;
+    private static final int spriteSize = 32;
+
+    @Param({"5000"})
+    public int spriteCount;
+
+    private final RenderQueue renderQueue = new RenderQueue();
+    private final Comparator<RenderQueue.DrawCommand> byDepth =
+            Comparator.comparingDouble(RenderQueue.DrawCommand::getDepth);
+    private RenderQueue.DrawCommand[] commands;
+    private RenderQueue.DrawCommand[] sorted;
+    private float[] positions;
+    private float[] velocities;
+
+    @Setup
+    public void setup() {
+        SplittableRandom random = new SplittableRandom(42);
+        commands = new RenderQueue.DrawCommand[spriteCount];
+        sorted = new RenderQueue.DrawCommand[spriteCount];
+        positions = new float[spriteCount * 2];
+        velocities = new float[spriteCount * 2];
+        for (int i = 0; i < spriteCount; i++) {
+            commands[i] = new RenderQueue.DrawCommand();
+            commands[i].setSource(null, 0, 0, 0, 0, spriteSize, spriteSize);
+            positions[i * 2] = (float) random.nextDouble(width);
+            positions[i * 2 + 1] = (float) random.nextDouble(height);
+            // mobs move by a couple of pixels per frame
+            velocities[i * 2] = (float) random.nextDouble(-2, 2);
+            velocities[i * 2 + 1] = (float) random.nextDouble(-2, 2);
+        }
+        move();
+    }
+
+    @Benchmark
+    public void move(Blackhole blackhole) {
+        move();
+        blackhole.consume(commands);
+    }
+
+    @Benchmark
+    public RenderQueue incrementalSort() {
+        move();
+        renderQueue.clear();
+        for (RenderQueue.DrawCommand command : commands)
+            renderQueue.add(command);
+        renderQueue.sort();
+        return renderQueue;
+    }
+
+    @Benchmark
+    public RenderQueue.DrawCommand[] fullSort() {
+        move();
+        System.arraycopy(commands, 0, sorted, 0, spriteCount);
+        Arrays.sort(sorted, byDepth);
+        return sorted;
+    }
+
+    @TearDown
+    public void checkOrder() {
+        for (int i = 1; i < renderQueue.getSize(); i++) {
+            if (renderQueue.get(i - 1).getDepth() > renderQueue.get(i).getDepth())
+                throw new IllegalStateException("Draws are not sorted by depth");
+        }
+    }
+
+    /**
+     * Moves the sprites of a frame, bouncing on the borders of the screen.
+     */
+    private void move() {
+        for (int i = 0; i < spriteCount; i++) {
+            for (int axis = 0; axis < 2; axis++) {
+                float position = positions[i * 2 + axis] + velocities[i * 2 + axis];
+                if (position < 0 || position > (axis == 0 ? width : height))
+                    velocities[i * 2 + axis] = -velocities[i * 2 + axis];
+                else
+                    positions[i * 2 + axis] = position;
+            }
+            commands[i].setDestination(positions[i * 2], positions[i * 2 + 1], spriteSize, spriteSize);
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package suchagame.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import suchagame.ecs.component.PhysicComponent;
+import suchagame.ecs.component.TransformComponent;
+import suchagame.ecs.entity.Entity;
+import suchagame.ui.Game;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark of the queries of the entities by component, done by every system every tick.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class EntityManagerBenchmark {
+    @Param({"100", "1000", "5000"})
+    public int entityCount;
+
+    @Setup
+    public void setup() {
+        BenchmarkWorld.init();
+        BenchmarkWorld.spawnMobs(entityCount);
+    }
+
+    @Benchmark
+    public List<Entity> getAllWithTransform() {
+        return Game.em.getAllWithComponent(TransformComponent.class);
+    }
+
+    @Benchmark
+    public List<Entity> getAllWithPhysic() {
+        return Game.em.getAllWithComponent(PhysicComponent.class);
+    }
+}
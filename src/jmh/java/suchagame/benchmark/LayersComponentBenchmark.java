@@ -0,0 +1,29 @@
+package suchagame.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import suchagame.ecs.component.LayersComponent;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark of the loading of the map, i.e. the parsing of the CSV layers and the building of the collision layer.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class LayersComponentBenchmark {
+
+    @Setup
+    public void setup() {
+        // the size of the map is read from its model
+        BenchmarkWorld.init();
+    }
+
+    @Benchmark
+    public LayersComponent load() {
+        return new LayersComponent();
+    }
+}
@@ -0,0 +1,41 @@
+package suchagame.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import suchagame.ecs.Model;
+import suchagame.ecs.entity.Entity;
+import suchagame.ecs.entity.Mob;
+import suchagame.ui.Game;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark of the spawn throughput: instantiation of a mob from its model, alone and added to the world.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ModelBenchmark {
+    private Model model;
+
+    @Setup
+    public void setup() {
+        BenchmarkWorld.init();
+        model = new Model(Mob.class);
+    }
+
+    @Benchmark
+    public Entity loadModel() {
+        return model.loadModel(Mob.class, "slime");
+    }
+
+    @Benchmark
+    public Entity spawn() {
+        // removed right away so that the world does not grow over the iterations
+        Entity entity = Game.em.addEntity(Mob.class, "slime");
+        Game.em.removeEntity(entity);
+        return entity;
+    }
+}
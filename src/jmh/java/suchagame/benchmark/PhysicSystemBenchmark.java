@@ -0,0 +1,38 @@
+package suchagame.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import suchagame.ecs.component.TransformComponent;
+import suchagame.ecs.entity.Entity;
+import suchagame.ecs.system.PhysicSystem;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark of the collision checks of the moves of all the active mobs, i.e. the physics of a tick.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PhysicSystemBenchmark {
+    @Param({"16", "128", "512"})
+    public int entityCount;
+
+    private List<Entity> mobs;
+
+    @Setup
+    public void setup() {
+        BenchmarkWorld.init();
+        mobs = BenchmarkWorld.spawnMobs(entityCount);
+    }
+
+    @Benchmark
+    public void checkCollisions(Blackhole blackhole) {
+        for (Entity mob : mobs)
+            blackhole.consume(PhysicSystem.checkCollision(mob, mob.getComponent(TransformComponent.class).getPosition()));
+    }
+}
@@ -0,0 +1,101 @@
+package suchagame.benchmark;
+
+import suchagame.ecs.system.InputSystem;
+import suchagame.ecs.system.SpawnSystem;
+import suchagame.headless.Headless;
+import suchagame.headless.Scenario;
+import suchagame.ui.Game;
+
+import java.io.IOException;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+
+/**
+ * Macro benchmark of the engine: runs a scenario (e.g. stress) through the whole pipeline of the systems
+ * without display, and reports the throughput, the tick times and the allocations of the simulation.
+ * The warmup ticks of the scenario (e.g. while the mobs spawn and the code is compiled) are not measured.
+ * Usage: ScenarioBenchmark [scenario name or file] [ticks]
+ */
+public class ScenarioBenchmark {
+
+    /**
+     * Runs the benchmark.
+     * @param args optional scenario (default stress) and measured tick count (default the ticks of the scenario)
+     * @throws IOException if the scenario cannot be loaded
+     */
+    public static void main(String[] args) throws IOException {
+        Scenario scenario = Scenario.load(args.length > 0 ? args[0] : "stress");
+        long tickCount = args.length > 1 ? Long.parseLong(args[1]) : scenario.getTicks();
+        long warmup = scenario.getWarmup();
+
+        Headless.init(scenario.getSeed(), new InputSystem(scenario.createInput(warmup + tickCount)),
+                new SpawnSystem(scenario.getWaves(), scenario.getSpawnBudget()));
+        scenario.initPlayer();
+        for (long tick = 0; tick < warmup && Game.isGameRunning(); tick++)
+            Headless.tick();
+        System.out.printf("%s: %d entities after %d warmup ticks%n", scenario.getName(), Game.em.getEntityCount(), warmup);
+
+        // the simulation runs on this thread, thus its allocations are the ones of the systems
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        // durations of all the measured ticks, whatever their length (e.g. far over a frame at scale)
+        long[] tickTimes = new long[(int) tickCount];
+        int maxEntityCount = 0;
+        long gcCount = -getGcCount(), gcTime = -getGcTime();
+        long allocated = -threads.getCurrentThreadAllocatedBytes();
+
+        long start = System.nanoTime();
+        long ticks = 0;
+        while (ticks < tickCount && Game.isGameRunning()) {
+            long tickStart = System.nanoTime();
+            Headless.tick();
+            tickTimes[(int) ticks] = System.nanoTime() - tickStart;
+            maxEntityCount = Math.max(maxEntityCount, Game.em.getEntityCount());
+            ticks++;
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        allocated += threads.getCurrentThreadAllocatedBytes();
+        gcCount += getGcCount();
+        gcTime += getGcTime();
+
+        System.out.printf("%d/%d ticks in %.2f s%s%n", ticks, tickCount, seconds, Game.isGameRunning() ? "" : " (game over)");
+        System.out.printf("throughput:  %10.0f ticks/s%n", ticks / seconds);
+        Arrays.sort(tickTimes, 0, (int) ticks);
+        System.out.printf("tick time:   %10.2f ms mean, p50 %.2f ms, p99 %.2f ms, max %.2f ms%n",
+                Arrays.stream(tickTimes, 0, (int) ticks).sum() / 1e6 / Math.max(1, ticks),
+                getPercentile(tickTimes, ticks, 0.5) / 1e6, getPercentile(tickTimes, ticks, 0.99) / 1e6,
+                (ticks > 0 ? tickTimes[(int) ticks - 1] : 0) / 1e6);
+        System.out.printf("allocation:  %10.1f MB/s (%.1f kB/tick)%n",
+                allocated / 1e6 / seconds, allocated / 1e3 / Math.max(1, ticks));
+        System.out.printf("gc:          %10d collections, %d ms%n", gcCount, gcTime);
+        System.out.printf("entities:    %10d at most, %d left%n", maxEntityCount, Game.em.getEntityCount());
+    }
+
+    /**
+     * Returns the duration under which the given ratio of the ticks are.
+     *
+     * @param sortedTimes the durations of the ticks in ascending order
+     * @param count the number of ticks
+     * @param percentile the ratio between 0 and 1 (e.g. 0.99 for the 99th percentile)
+     * @return the duration in nanoseconds, 0 if no tick was measured
+     */
+    private static long getPercentile(long[] sortedTimes, long count, double percentile) {
+        if (count == 0)
+            return 0;
+        return sortedTimes[(int) Math.max(0, Math.ceil(percentile * count) - 1)];
+    }
+
+    private static long getGcCount() {
+        long count = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans())
+            count += Math.max(0, gc.getCollectionCount());
+        return count;
+    }
+
+    private static long getGcTime() {
+        long time = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans())
+            time += Math.max(0, gc.getCollectionTime());
+        return time;
+    }
+}
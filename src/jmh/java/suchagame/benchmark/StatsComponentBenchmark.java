@@ -0,0 +1,50 @@
+package suchagame.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import suchagame.ecs.component.StatsComponent;
+import suchagame.ecs.entity.Entity;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark of the updates of the stats of the mobs, the observable ones notifying their listeners.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class StatsComponentBenchmark {
+    @Param({"100", "1000"})
+    public int entityCount;
+
+    private StatsComponent[] stats;
+
+    @Setup
+    public void setup() {
+        BenchmarkWorld.init();
+        List<Entity> mobs = BenchmarkWorld.spawnMobs(entityCount);
+        stats = new StatsComponent[mobs.size()];
+        for (int i = 0; i < stats.length; i++)
+            stats[i] = mobs.get(i).getComponent(StatsComponent.class);
+    }
+
+    @Benchmark
+    public void alterStat() {
+        for (StatsComponent statsComponent : stats) {
+            statsComponent.alterStat("atk", 1f);
+            statsComponent.alterStat("atk", -1f);
+        }
+    }
+
+    @Benchmark
+    public void alterObservableStat() {
+        // hit then healed, so that the mobs stay alive
+        for (StatsComponent statsComponent : stats) {
+            statsComponent.alterObservableStat("hp", -1f);
+            statsComponent.alterObservableStat("hp", 1f);
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package suchagame.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import suchagame.utils.Vector2f;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark of the vector math used by the movements and the collisions.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class Vector2fBenchmark {
+    private Vector2f a, b;
+
+    @Setup
+    public void setup() {
+        a = new Vector2f(12.5f, -3.25f);
+        b = new Vector2f(-7.75f, 41f);
+    }
+
+    @Benchmark
+    public Vector2f add() {
+        return a.add(b);
+    }
+
+    @Benchmark
+    public Vector2f mulNormalize() {
+        return a.sub(b).normalize().mul(2.5f);
+    }
+
+    @Benchmark
+    public void dotDistance(Blackhole blackhole) {
+        blackhole.consume(a.dot(b));
+        blackhole.consume(a.distance(b));
+    }
+
+    @Benchmark
+    public Vector2f translate() {
+        // in place, as the moves of the entities
+        Vector2f position = new Vector2f(a.getX(), a.getY());
+        position.translate(b);
+        return position;
+    }
+}
@@ -3,6 +3,7 @@ module suchagame.suchagame {
     requires javafx.fxml;
     requires org.yaml.snakeyaml;
     requires annotations;
+    requires jdk.jfr;
 
 
     exports suchagame.ui;
@@ -1,12 +1,25 @@
 package suchagame;
 
+import suchagame.headless.Headless;
+import suchagame.replay.Replay;
 import suchagame.ui.Game;
 
+import java.util.Arrays;
+
 /**
- * Main class that launches the game.
+ * Main class that launches the game, replays a recorded session with "replay <recording>"
+ * or runs a scenario without display with "headless [--scenario=<scenario>] [--ticks=<count>]".
  */
 public class Main {
-    public static void main(String[] args) {
+    public static void main(String[] args) throws Exception {
+        if (args.length > 0 && args[0].equals("replay")) {
+            Replay.main(Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
+        if (args.length > 0 && args[0].equals("headless")) {
+            Headless.main(Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
         Game.main(args);
     }
 }
@@ -1,9 +1,12 @@
 package suchagame.ecs;
 
+import javafx.geometry.BoundingBox;
 import org.jetbrains.annotations.Nullable;
 import suchagame.ecs.component.Component;
 import suchagame.ecs.component.StatsComponent;
+import suchagame.ecs.component.TransformComponent;
 import suchagame.ecs.entity.*;
+import suchagame.jfr.EntityEvent;
 
 import java.util.*;
 
@@ -15,6 +18,11 @@ public class EntityManager {
     public List<Entity> entities = new ArrayList<>();
     private int itemsCount;
 
+    // size of the cells of the spatial index in pixels
+    private static final int cellSize = 64;
+    // entities with a position indexed by cell, covering the map once it is loaded
+    private SpatialGrid spatialIndex = new SpatialGrid(0, 0, cellSize);
+
     public EntityManager() {
         model = new Model(
                 Item.class,
@@ -34,9 +42,7 @@ public class EntityManager {
         addEntity(MapEntity.class);
         addEntity(Player.class);
         addEntity(NPC.class, "blacksmith");
-        for (int i = 0; i < 10; i++) {
-            addEntity(Mob.class, "slime");
-        }
+        // mobs are spawned by waves (see SpawnSystem)
     }
 
     /**
@@ -98,20 +104,37 @@ public class EntityManager {
     /**
      * Adds an entity to the entity manager. If the entity has a StatsComponent, it adds an observer to it.
      */
-    public void addEntity(Class<? extends Entity> entityClass) {
-        addEntity(entityClass, null);
+    public Entity addEntity(Class<? extends Entity> entityClass) {
+        return addEntity(entityClass, null);
     }
 
-    public void addEntity(Class<? extends Entity> entityClass, @Nullable String tag) {
+    /**
+     * Adds an entity of the given tag to the entity manager, or one entity per tag with "*".
+     *
+     * @param entityClass the class of the entity
+     * @param tag         the tag of the entity model
+     * @return the added entity, or the last one with "*"
+     */
+    public Entity addEntity(Class<? extends Entity> entityClass, @Nullable String tag) {
         if (tag != null && tag.equals("*")) {
+            Entity entity = null;
             for (String newTag: model.getTags(entityClass)) {
-                addEntity(entityClass, newTag);
+                entity = addEntity(entityClass, newTag);
             }
-            return;
+            return entity;
         }
 
         Entity entity = model.loadModel(entityClass, tag);
         this.entities.add(entity);
+        commitEntityEvent(entity, true);
+        if (entity instanceof MapEntity) {
+            spatialIndex = new SpatialGrid(MapEntity.getPixelWidth(), MapEntity.getPixelHeight(), cellSize);
+        }
+        if (entity.hasComponent(TransformComponent.class)) {
+            TransformComponent transformComponent = entity.getComponent(TransformComponent.class);
+            spatialIndex.move(entity, transformComponent);
+            transformComponent.setPositionListener(position -> spatialIndex.move(entity, transformComponent));
+        }
         if (entity.hasComponent(StatsComponent.class)) {
             StatsSystem.addObserver(entity);
         }
@@ -119,6 +142,7 @@ public class EntityManager {
         if (entity instanceof Item) {
             itemsCount++;
         }
+        return entity;
     }
 
 
@@ -129,6 +153,25 @@ public class EntityManager {
      */
     public void removeEntity(Entity entity) {
         this.entities.remove(entity);
+        if (entity.hasComponent(TransformComponent.class))
+            spatialIndex.remove(entity.getComponent(TransformComponent.class));
+        commitEntityEvent(entity, false);
+    }
+
+    /**
+     * Emits the spawn or the destruction of an entity as a flight recorder event if it is recorded.
+     *
+     * @param entity the entity
+     * @param spawned true if the entity is added, false if it is removed
+     */
+    private void commitEntityEvent(Entity entity, boolean spawned) {
+        EntityEvent entityEvent = new EntityEvent();
+        if (!entityEvent.isEnabled())
+            return;
+        entityEvent.spawned = spawned;
+        entityEvent.entityClass = entity.getClass().getSimpleName();
+        entityEvent.entityCount = getEntityCount();
+        entityEvent.commit();
     }
 
     /**
@@ -177,6 +220,27 @@ public class EntityManager {
      */
     public void removeAllEntities() {
         this.entities.clear();
+        spatialIndex.clear();
+    }
+
+    /**
+     * Retrieves the entities with a position in the cells of the spatial index overlapping the area.
+     *
+     * @param area   the area in pixels
+     * @param margin the margin added around the area in pixels
+     * @param result the list the entities are added to
+     */
+    public void queryArea(BoundingBox area, float margin, List<Entity> result) {
+        spatialIndex.query(area, margin, result);
+    }
+
+    /**
+     * Appends the occupied cells of the spatial index overlapping the area to the debug commands.
+     *
+     * @param area the area in pixels
+     */
+    public void debugDrawSpatialIndex(BoundingBox area) {
+        spatialIndex.debugDraw(area);
     }
 
 
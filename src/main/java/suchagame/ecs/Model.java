@@ -4,8 +4,10 @@ import org.yaml.snakeyaml.Yaml;
 import suchagame.Main;
 import suchagame.ecs.component.Component;
 import suchagame.ecs.component.Dependency;
+import suchagame.ecs.component.Dynamic;
 import suchagame.ecs.component.FlagComponent;
 import suchagame.ecs.entity.Entity;
+import suchagame.jfr.ModelEvent;
 import suchagame.utils.Utils;
 
 import java.io.IOException;
@@ -166,7 +168,7 @@ public class Model {
                 if ((constructor.getParameterCount() == componentDataTypes.size() + dependenciesCount &&
                         !entityModel.hasDynamicComponent(componentClass)) ||
                     ((constructor.getParameterCount() == componentDataTypes.size() + dependenciesCount + 1) &&
-                        entityModel.hasDynamicComponent(componentClass))) {
+                        entityModel.hasDynamicComponent(componentClass) && constructor.isAnnotationPresent(Dynamic.class))) {
 
                 boolean isRightConstructor = true;
                 for (int i = 0; i < componentDataTypes.size(); i++) {
@@ -270,6 +272,8 @@ public class Model {
             throw new IllegalArgumentException("No model for " + entityClass);
         }
         HashSet<Class<? extends Component>> dynamicComponents = entityModel.getDynamicComponents();
+        ModelEvent modelEvent = new ModelEvent();
+        modelEvent.begin();
 
         try {
             Entity entity = (Entity) entityModel.getEntityConstructor().newInstance(
@@ -290,6 +294,14 @@ public class Model {
                 Component component = componentModel.getComponentConstructor().newInstance(componentConstructorArgs.values().toArray());
                 entity.addComponent(component);
             }
+
+            modelEvent.end();
+            if (modelEvent.shouldCommit()) {
+                modelEvent.entityClass = entityClass.getSimpleName();
+                modelEvent.tag = tag;
+                modelEvent.componentCount = entityModel.getComponents().size();
+                modelEvent.commit();
+            }
             return entity;
         } catch (InstantiationException | IllegalAccessException | InvocationTargetException e) {
             e.printStackTrace();
@@ -0,0 +1,53 @@
+package suchagame.ecs;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+/**
+ * Class that manages the seeded random number generators of the world.
+ * Each system draws from its own stream, thus a given seed always gives the same run
+ * and systems never share (nor contend on) a generator.
+ */
+public class RandomManager {
+    private final long seed;
+    private final Map<Stream, SplittableRandom> streams = new EnumMap<>(Stream.class);
+
+    /**
+     * Creates the streams of the world from the given seed.
+     *
+     * @param seed the seed of the world
+     */
+    public RandomManager(long seed) {
+        this.seed = seed;
+        SplittableRandom root = new SplittableRandom(seed);
+        // streams are split in declaration order so that they only depend on the seed
+        for (Stream stream : Stream.values()) {
+            streams.put(stream, root.split());
+        }
+    }
+
+    /**
+     * Enum representing the consumers of random numbers, one stream each.
+     */
+    public enum Stream {
+        SPAWN,
+        ANIMATION,
+        LIGHT,
+        PARTICLE
+    }
+
+    /**
+     * Returns the generator of the given stream.
+     *
+     * @param stream the stream
+     * @return the generator of the stream
+     */
+    public SplittableRandom get(Stream stream) {
+        return streams.get(stream);
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+}
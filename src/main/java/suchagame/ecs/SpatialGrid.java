@@ -0,0 +1,137 @@
+package suchagame.ecs;
+
+import javafx.geometry.BoundingBox;
+import suchagame.ecs.component.TransformComponent;
+import suchagame.ecs.entity.Entity;
+import suchagame.ui.DebugDraw;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Uniform grid indexing the entities by the cell of their position, so that the entities of an area
+ * (e.g. the viewport of the camera) are found by only visiting the cells overlapping it.
+ * Positions out of the grid are clamped to its border cells.
+ * The cell of an entity and its slot in the cell are kept by its transform component, thus moving an entity
+ * within its cell costs nothing and moving it to another cell swaps it out of the previous one in O(1).
+ */
+public class SpatialGrid {
+    private final int cellSize;
+    private final int rows, cols;
+    private final List<List<Entity>> cells;
+
+    /**
+     * Constructs an empty grid covering the given area.
+     *
+     * @param width the width of the area in pixels
+     * @param height the height of the area in pixels
+     * @param cellSize the size of a cell in pixels
+     */
+    public SpatialGrid(int width, int height, int cellSize) {
+        this.cellSize = cellSize;
+        this.cols = Math.max(1, (width + cellSize - 1) / cellSize);
+        this.rows = Math.max(1, (height + cellSize - 1) / cellSize);
+        this.cells = new ArrayList<>(rows * cols);
+        for (int i = 0; i < rows * cols; i++)
+            cells.add(new ArrayList<>());
+    }
+
+    /**
+     * Indexes the entity at the position of its transform, or moves it if it is already indexed.
+     *
+     * @param entity the entity
+     * @param transform the transform component of the entity
+     */
+    public void move(Entity entity, TransformComponent transform) {
+        int cell = getCell(transform.getPosition().getX(), transform.getPosition().getY());
+        if (transform.getGridCell() == cell)
+            return;
+        if (transform.getGridCell() >= 0)
+            removeFromCell(transform);
+        List<Entity> entities = cells.get(cell);
+        transform.setGridCell(cell, entities.size());
+        entities.add(entity);
+    }
+
+    /**
+     * Removes the entity from the grid.
+     *
+     * @param transform the transform component of the entity
+     */
+    public void remove(TransformComponent transform) {
+        if (transform.getGridCell() >= 0)
+            removeFromCell(transform);
+        transform.setGridCell(-1, -1);
+    }
+
+    /**
+     * Removes all the entities from the grid.
+     */
+    public void clear() {
+        for (List<Entity> cell : cells) {
+            for (Entity entity : cell)
+                entity.getComponent(TransformComponent.class).setGridCell(-1, -1);
+            cell.clear();
+        }
+    }
+
+    /**
+     * Swaps the last entity of the cell into the slot of the removed one.
+     *
+     * @param transform the transform component of the removed entity
+     */
+    private void removeFromCell(TransformComponent transform) {
+        List<Entity> entities = cells.get(transform.getGridCell());
+        Entity last = entities.remove(entities.size() - 1);
+        int slot = transform.getGridSlot();
+        if (slot < entities.size()) {
+            entities.set(slot, last);
+            last.getComponent(TransformComponent.class).setGridCell(transform.getGridCell(), slot);
+        }
+    }
+
+    /**
+     * Adds the entities of the cells overlapping the area to the given list.
+     * The entities are only filtered by cell, thus some of them may be out of the area.
+     *
+     * @param area the area in pixels
+     * @param margin the margin added around the area in pixels (e.g. the size of the largest entity)
+     * @param result the list the entities are added to
+     */
+    public void query(BoundingBox area, float margin, List<Entity> result) {
+        int minCol = getCol((float) area.getMinX() - margin), maxCol = getCol((float) area.getMaxX() + margin);
+        int minRow = getRow((float) area.getMinY() - margin), maxRow = getRow((float) area.getMaxY() + margin);
+        for (int row = minRow; row <= maxRow; row++) {
+            for (int col = minCol; col <= maxCol; col++)
+                result.addAll(cells.get(row * cols + col));
+        }
+    }
+
+    /**
+     * Appends the occupied cells overlapping the area to the debug commands.
+     *
+     * @param area the area in pixels
+     */
+    public void debugDraw(BoundingBox area) {
+        int minCol = getCol((float) area.getMinX()), maxCol = getCol((float) area.getMaxX());
+        int minRow = getRow((float) area.getMinY()), maxRow = getRow((float) area.getMaxY());
+        for (int row = minRow; row <= maxRow; row++) {
+            for (int col = minCol; col <= maxCol; col++) {
+                if (!cells.get(row * cols + col).isEmpty())
+                    DebugDraw.rect(DebugDraw.Category.GRID_CELL, col * cellSize, row * cellSize, cellSize, cellSize);
+            }
+        }
+    }
+
+    private int getCell(float x, float y) {
+        return getRow(y) * cols + getCol(x);
+    }
+
+    private int getCol(float x) {
+        return Math.min(cols - 1, Math.max(0, (int) Math.floor(x / cellSize)));
+    }
+
+    private int getRow(float y) {
+        return Math.min(rows - 1, Math.max(0, (int) Math.floor(y / cellSize)));
+    }
+}
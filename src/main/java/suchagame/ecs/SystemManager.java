@@ -3,9 +3,16 @@ package suchagame.ecs;
 import suchagame.ecs.system.System;
 import suchagame.ecs.system.*;
 import suchagame.ui.Game;
+import suchagame.ui.GameLoop;
+import suchagame.ui.RenderSnapshot;
+import suchagame.utils.Profiler;
+import suchagame.utils.Profiler.Section;
+import suchagame.utils.TimingWheel;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
 
 /**
  * Class that manages the systems.
@@ -13,24 +20,110 @@ import java.util.List;
 public class SystemManager {
     public List<System> systems = new ArrayList<>();
 
+    // tasks posted by other threads (e.g. timers, UI) to run at the start of the next tick
+    private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+    // ticks simulated since the start of the game, the clock of the tick driven systems (e.g. animations)
+    private long tick = 0;
+    // timers in game time (e.g. cool downs, buffs), advanced every tick
+    private final TimingWheel scheduler = new TimingWheel(GameLoop.framerate);
+    // time taken by each system during the last ticks
+    private final Profiler profiler = new Profiler();
+
     /**
      * Constructor that adds all the systems to the list.
      */
     public SystemManager() {
+        this(new InputSystem(Game.scene));
+    }
+
+    /**
+     * Constructor that adds all the systems to the list with the given input system.
+     *
+     * @param inputSystem the input system (e.g. listening to the scene or playing back a recording)
+     */
+    public SystemManager(InputSystem inputSystem) {
+        this(inputSystem, new SpawnSystem());
+    }
+
+    /**
+     * Constructor that adds all the systems to the list with the given input and spawn systems.
+     *
+     * @param inputSystem the input system (e.g. listening to the scene or playing back a recording)
+     * @param spawnSystem the spawn system (e.g. spawning the waves of a scenario)
+     */
+    public SystemManager(InputSystem inputSystem, SpawnSystem spawnSystem) {
         this.systems.addAll(List.of(
-                new InputSystem(Game.scene),
+                inputSystem,
                 new StatsSystem(),
-                new GameplaySystem()
+                new GameplaySystem(),
+                spawnSystem,
+                new PathfindingSystem(),
+                new ParticleSystem()
         ));
     }
 
     /**
-     * Updates all the systems that need to be updated.
+     * Updates all the systems that need to be updated for one tick of simulation.
      */
     public void update() {
+       Runnable task;
+       while ((task = tasks.poll()) != null)
+           task.run();
+       scheduler.advance();
+
+       profiler.enter(Section.INPUT);
+       get(InputSystem.class).update();
+       profiler.enter(Section.SPAWN);
+       get(SpawnSystem.class).update();
+       profiler.enter(Section.STATS);
+       StatsSystem.update();
+       profiler.enter(Section.MOVEMENT);
        MovementSystem.update();
+       PhysicSystem.commitCollisions(tick);
+       profiler.enter(Section.ANIMATION);
        AnimationSystem.update();
-       GraphicSystem.render(Game.gc);
+       profiler.enter(Section.PARTICLES);
+       get(ParticleSystem.class).update();
+       profiler.enter(Section.OTHER);
+       tick++;
+    }
+
+    /**
+     * Renders the entities, the particles and the lights into the snapshot of the frame.
+     *
+     * @param snapshot the snapshot drawn by the application thread
+     */
+    public void render(RenderSnapshot snapshot) {
+        profiler.enter(Section.GRAPHICS);
+        GraphicSystem.render(snapshot);
+        profiler.enter(Section.PARTICLES);
+        get(ParticleSystem.class).render(snapshot);
+        profiler.enter(Section.LIGHT);
+        if (Game.lightEnabled)
+            LightSystem.render(snapshot);
+        profiler.enter(Section.OTHER);
+    }
+
+    /**
+     * Posts a task to run on the simulation at the start of the next tick, thus the world is only ever
+     * modified by the thread updating the systems.
+     *
+     * @param task the task to run
+     */
+    public void post(Runnable task) {
+        tasks.add(task);
+    }
+
+    public long getTick() {
+        return tick;
+    }
+
+    public TimingWheel getScheduler() {
+        return scheduler;
+    }
+
+    public Profiler getProfiler() {
+        return profiler;
     }
 
     /**
@@ -50,11 +143,12 @@ public class SystemManager {
     }
 
     /**
-     * Removes all the systems from the list and eventual listeners.
+     * Removes all the systems from the list, eventual listeners and pending animation events.
      */
     public void removeAllSystems() {
         InputSystem inputSystem = get(InputSystem.class);
         inputSystem.removeListeners();
+        AnimationSystem.clear();
         systems.clear();
     }
 }
@@ -1,6 +1,10 @@
 package suchagame.ecs.component;
 
+import suchagame.ecs.RandomManager;
+import suchagame.ui.Game;
+
 import java.util.Arrays;
+import java.util.SplittableRandom;
 
 /**
  * Component for managing animations of a graphical object using sprite sheet.
@@ -12,7 +16,15 @@ public class AnimationComponent extends Component {
     private final int[] framesCountPerRow;
 
     private final int actionCount;
-    private long lastUpdate = java.lang.System.currentTimeMillis();
+    // origins of the frames in the sprite sheet by action, as [x, y] pairs
+    private final int[][] frameOrigins;
+    // tick at which the current action started (-1 until the first update) and frame it started from
+    private long actionStartTick = -1;
+    private int startFrame = 0;
+
+    // callback run once the current action is finished and the tick it is due
+    private Runnable actionEndCallback;
+    private long actionEndTick;
 
     /**
      * Constructs an AnimationComponent object.
@@ -32,6 +44,16 @@ public class AnimationComponent extends Component {
          // max frame count per row is used because some actions have more frames than others
         graphicComponent.setWidth(graphicComponent.getWidth() / Arrays.stream(framesCountPerRow).max().getAsInt());
         graphicComponent.setHeight(graphicComponent.getHeight() / framesCountPerRow.length);
+
+        // the origins of the frames only depend on the sprite sheet, thus they are computed once
+        this.frameOrigins = new int[framesCountPerRow.length][];
+        for (int row = 0; row < framesCountPerRow.length; row++) {
+            frameOrigins[row] = new int[framesCountPerRow[row] * 2];
+            for (int frame = 0; frame < framesCountPerRow[row]; frame++) {
+                frameOrigins[row][frame * 2] = graphicComponent.getWidth() * frame;
+                frameOrigins[row][frame * 2 + 1] = graphicComponent.getHeight() * row;
+            }
+        }
     }
 
     /**
@@ -52,6 +74,7 @@ public class AnimationComponent extends Component {
         this(graphicComponent, framerate, framesCountPerRow);
         this.currentAction = initAction;
         this.currentFrame = initFrame;
+        this.startFrame = initFrame;
 
          // initialize the origin of the graphic component based on the initial frame and action
         graphicComponent.setOrigin(new int[]{
@@ -77,14 +100,16 @@ public class AnimationComponent extends Component {
     {
         this(graphicComponent, framerate, framesCountPerRow);
 
+        SplittableRandom random = Game.rm.get(RandomManager.Stream.ANIMATION);
         if (specialAction.equals("random")) {
-            this.currentAction = ACTION.values()[(int) (Math.random() * framesCountPerRow.length)];
+            this.currentAction = ACTION.values()[random.nextInt(framesCountPerRow.length)];
         } else {
             this.currentAction = ACTION.valueOf(specialAction.toUpperCase());
         }
         if (specialFrame.equals("random")) {
             assert currentAction != null;
-            this.currentFrame = (int) (Math.random() * framesCountPerRow[currentAction.ordinal()]);
+            this.currentFrame = random.nextInt(framesCountPerRow[currentAction.ordinal()]);
+            this.startFrame = currentFrame;
         }
 
         // initialize the origin of the graphic component based on the initial frame and action
@@ -106,23 +131,35 @@ public class AnimationComponent extends Component {
     public int getFramerate() {
         return framerate;
     }
+
     public int getCurrentFrame() {
         return currentFrame;
     }
 
     /**
-     * Sets the current frame to the next frame.
+     * Updates the current frame from the time elapsed since the start of the current action.
+     * The frame only depends on the tick, thus an entity that was not updated for a while (e.g. off screen)
+     * resumes at the same frame as if it had been.
+     *
+     * @param tick the current tick of the simulation
+     * @param tickRate the number of ticks per second
+     * @return the current frame
      */
-    public void setCurrentFrameToNext() {
-        this.currentFrame = (currentFrame + 1) % framesCountPerRow[currentAction.ordinal()];
-    }
-
-    public long getLastUpdate() {
-        return lastUpdate;
+    public int updateFrame(long tick, int tickRate) {
+        if (actionStartTick < 0)
+            actionStartTick = tick;
+        int row = currentAction.ordinal();
+        currentFrame = (int) ((startFrame + (tick - actionStartTick) * framerate / tickRate) % framesCountPerRow[row]);
+        return currentFrame;
     }
 
-    public void setLastUpdate(long lastUpdate) {
-        this.lastUpdate = lastUpdate;
+    /**
+     * Returns the origins of the frames of the current action.
+     *
+     * @return the origins of the frames as [x, y] pairs
+     */
+    public int[] getCurrentFrameOrigins() {
+        return frameOrigins[currentAction.ordinal()];
     }
 
     /**
@@ -135,11 +172,19 @@ public class AnimationComponent extends Component {
         return action.ordinal();
     }
 
-    public void setCurrentAction(ACTION currentAction) {
+    /**
+     * Sets the current action, starting from its first frame at the given tick.
+     *
+     * @param currentAction the action
+     * @param tick the current tick of the simulation
+     */
+    public void setCurrentAction(ACTION currentAction, long tick) {
         this.currentAction = (this.actionCount < currentAction.ordinal()) ?
                 ACTION.values()[this.actionCount] : currentAction;
 
         this.currentFrame = 0;
+        this.startFrame = 0;
+        this.actionStartTick = tick;
     }
 
     public ACTION getCurrentAction() {
@@ -147,11 +192,32 @@ public class AnimationComponent extends Component {
     }
 
     /**
-     * Returns the duration of the given action in milliseconds.
+     * Returns the duration of the given action in ticks, i.e. until its last frame is displayed.
      * @param action the action
-     * @return the duration of the given action in milliseconds
+     * @param tickRate the number of ticks per second
+     * @return the duration of the given action in ticks
+     */
+    public long getDurationOfAction(ACTION action, int tickRate) {
+        int frames = framesCountPerRow[Math.min(this.actionCount, action.ordinal())] - 1;
+        return ((long) frames * tickRate + framerate - 1) / framerate;
+    }
+
+    /**
+     * Sets the callback run once the current action is finished.
+     *
+     * @param callback the callback, null to cancel the pending one
+     * @param tick the tick at which the callback is due
      */
-    public long getDurationOfAction(ACTION action) {
-        return (long) ((1000f / framerate) * (framesCountPerRow[Math.min(this.actionCount, action.ordinal())] - 1));
+    public void setActionEndCallback(Runnable callback, long tick) {
+        this.actionEndCallback = callback;
+        this.actionEndTick = tick;
+    }
+
+    public Runnable getActionEndCallback() {
+        return actionEndCallback;
+    }
+
+    public long getActionEndTick() {
+        return actionEndTick;
     }
-}
\ No newline at end of file
+}
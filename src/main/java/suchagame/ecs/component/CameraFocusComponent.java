@@ -0,0 +1,15 @@
+package suchagame.ecs.component;
+
+/**
+ * Marker component for the entity followed by the camera (i.e. rendered at the center of the screen
+ * while it is in the free space).
+ */
+public class CameraFocusComponent extends Component {
+
+    /**
+     * Constructs a CameraFocusComponent object.
+     */
+    public CameraFocusComponent() {
+        super();
+    }
+}
@@ -0,0 +1,41 @@
+package suchagame.ecs.component;
+
+import java.util.Map;
+
+/**
+ * Component for the entities emitting particles (e.g. the trail of a fireball or the burst of a dying slime).
+ * The emitters are defined in config/particle.yml and attached by event: "trail" emits while the entity
+ * is visible, "death" emits once when the entity is killed.
+ */
+public class EmitterComponent extends Component {
+    private final String trail;
+    private final String death;
+
+    // particles of the trail owed by the previous ticks, as the rate of a trail is fractional
+    private float trailDebt = 0f;
+
+    /**
+     * Constructs an EmitterComponent object.
+     * @param emitters the names of the emitters by event ("trail" or "death")
+     */
+    public EmitterComponent(Map<String, String> emitters) {
+        this.trail = emitters.get("trail");
+        this.death = emitters.get("death");
+    }
+
+    public String getTrail() {
+        return trail;
+    }
+
+    public String getDeath() {
+        return death;
+    }
+
+    public float getTrailDebt() {
+        return trailDebt;
+    }
+
+    public void setTrailDebt(float trailDebt) {
+        this.trailDebt = trailDebt;
+    }
+}
@@ -5,47 +5,84 @@ import javafx.scene.image.Image;
 import suchagame.ecs.entity.Entity;
 import suchagame.ecs.entity.Projectile;
 import suchagame.ui.Game;
-import suchagame.utils.Utils;
+import suchagame.ui.RenderQueue;
+import suchagame.ui.TextureAtlas;
 
 /**
  * Component for base graphic (can be extended for animation @see AnimationComponent).
  */
 public class GraphicComponent extends Component {
-    private final Image sprite;
+    // region of the sprite in the texture atlas, shared by all the entities using it
+    private final TextureAtlas.Region region;
+    private final int layer;
     private int width, height;
+    // origin of the current frame relative to the region of the sprite
     private int[] origin;
+    // draw of the component, reused every frame
+    private final RenderQueue.DrawCommand drawCommand = new RenderQueue.DrawCommand();
 
     /**
      * Constructs a GraphicComponent object.
      * @param spriteFileName name of the sprite file (must be in src/main/java/suchagame/images).
      */
     public GraphicComponent(String spriteFileName) {
-        this.sprite = new Image(Utils.getPathResource(Game.class, "images/" + spriteFileName));
-        this.width = (int) sprite.getWidth();
-        this.height = (int) sprite.getHeight();
+        this(spriteFileName, 0);
+    }
+
+    /**
+     * Constructs a GraphicComponent object drawn on the given layer.
+     * @param spriteFileName name of the sprite file (must be in src/main/java/suchagame/images).
+     * @param layer layer of the sprite, higher layers are drawn on top.
+     */
+    public GraphicComponent(String spriteFileName, int layer) {
+        this.region = TextureAtlas.getInstance().getRegion(spriteFileName);
+        this.layer = layer;
+        this.width = region.getWidth();
+        this.height = region.getHeight();
         this.origin = new int[]{0, 0};
     }
 
     @Dynamic
     public GraphicComponent(String spriteFileName, Entity entity) {
-        if (entity instanceof Projectile) {
-            Projectile.SIDE side = ((Projectile) entity).getOrientation();
-            if (spriteFileName.contains(".png")) {
-                spriteFileName = spriteFileName.substring(0, spriteFileName.length() - 4);
-            }
-            String spritePath = "images/" + spriteFileName + "_" + side.toString().toLowerCase() + ".png";
-            this.sprite = new Image(Utils.getPathResource(Game.class, spritePath));
-            this.width = (int) sprite.getWidth();
-            this.height = (int) sprite.getHeight();
-            this.origin = new int[]{0, 0};
-        }
-        else {
+        this(spriteFileName, 0, entity);
+    }
+
+    @Dynamic
+    public GraphicComponent(String spriteFileName, int layer, Entity entity) {
+        this(orientedSpriteFileName(spriteFileName, entity), layer);
+    }
+
+    /**
+     * Returns the sprite file name matching the orientation of the entity.
+     * @param spriteFileName name of the base sprite file.
+     * @param entity the entity with a dynamic sprite.
+     * @return the name of the oriented sprite file.
+     */
+    private static String orientedSpriteFileName(String spriteFileName, Entity entity) {
+        if (!(entity instanceof Projectile)) {
             throw new IllegalArgumentException("Entity must has dynamic sprite");
         }
+        Projectile.SIDE side = ((Projectile) entity).getOrientation();
+        if (spriteFileName.contains(".png")) {
+            spriteFileName = spriteFileName.substring(0, spriteFileName.length() - 4);
+        }
+        return spriteFileName + "_" + side.toString().toLowerCase() + ".png";
     }
 
     public Image getSprite() {
-        return sprite;
+        return region.getTexture();
+    }
+
+    public RenderQueue.DrawCommand getDrawCommand() {
+        return drawCommand;
+    }
+
+    public int getTextureID() {
+        return region.getTextureID();
+    }
+
+    public int getLayer() {
+        return layer;
     }
 
     public int getWidth() {
@@ -68,6 +105,22 @@ public class GraphicComponent extends Component {
         return origin;
     }
 
+    /**
+     * Returns the x of the current frame in the texture of the sprite.
+     * @return the x of the source of the draw.
+     */
+    public int getSourceX() {
+        return region.getX() + origin[0];
+    }
+
+    /**
+     * Returns the y of the current frame in the texture of the sprite.
+     * @return the y of the source of the draw.
+     */
+    public int getSourceY() {
+        return region.getY() + origin[1];
+    }
+
     public void setOrigin(int[] new_origin) {
         this.origin = new_origin;
     }
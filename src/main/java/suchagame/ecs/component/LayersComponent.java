@@ -2,6 +2,7 @@ package suchagame.ecs.component;
 
 import suchagame.Main;
 import suchagame.ecs.entity.MapEntity;
+import suchagame.jfr.MapEvent;
 import suchagame.utils.Vector2f;
 
 import java.io.BufferedReader;
@@ -24,6 +25,9 @@ public class LayersComponent extends Component {
      // 2D array of booleans representing whether a tile is transparent
      private final boolean[][] collidingLayer;
 
+     // listeners notified when a tile is edited
+     private final List<TileListener> tileListeners = new ArrayList<>();
+
      private static final int[] transparentTilesID = {
              0, 26, 31, 34, 59, 60, 69, 117, 118,
              120, 121, 126, 127, 128, 129, 148, 149,
@@ -35,6 +39,8 @@ public class LayersComponent extends Component {
       * Constructs a LayersComponent object with the static map layers count.
       */
      public LayersComponent() {
+         MapEvent mapEvent = new MapEvent();
+         mapEvent.begin();
          this.layers = new ArrayList<>(MapEntity.layersCount);
          for (int layerID = 0; layerID < MapEntity.layersCount; layerID++) {
              try {
@@ -51,6 +57,14 @@ public class LayersComponent extends Component {
                 this.collidingLayer[i] = rows;
          }
          initCollisionLayer();
+
+         mapEvent.end();
+         if (mapEvent.shouldCommit()) {
+             mapEvent.layerCount = MapEntity.layersCount;
+             mapEvent.rows = MapEntity.globalTileCountRows;
+             mapEvent.columns = MapEntity.globalTileCountCols;
+             mapEvent.commit();
+         }
      }
 
     /**
@@ -86,17 +100,54 @@ public class LayersComponent extends Component {
          int[][] collidingLayer = layers.get(MapEntity.layersCount - 1);
          for (int x = 0; x < MapEntity.globalTileCountRows; x++) {
              for (int y = 0; y < MapEntity.globalTileCountCols; y++) {
-                 int tileID = collidingLayer[x][y];
-                 for (int j : transparentTilesID) {
-                     if (j == tileID) {
-                         this.collidingLayer[x][y] = false;
-                         break;
-                     }
-                 }
+                 this.collidingLayer[x][y] = isCollidingTileID(collidingLayer[x][y]);
             }
         }
     }
 
+    /**
+     * Returns whether the given tile ID of the top layer is a solid tile.
+     * @param tileID the tile ID
+     * @return whether the tile is solid
+     */
+    private static boolean isCollidingTileID(int tileID) {
+        for (int j : transparentTilesID) {
+            if (j == tileID)
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * Edits the tile at the specified position in the specified layer and notifies the tile listeners.
+     * @param layerID the ID of the layer to edit
+     * @param y the row of the tile
+     * @param x the column of the tile
+     * @param tileID the new tile ID
+     */
+    public void setTile(int layerID, int y, int x, int tileID) {
+        layers.get(layerID)[y][x] = tileID;
+        if (layerID == MapEntity.layersCount - 1)
+            this.collidingLayer[y][x] = isCollidingTileID(tileID);
+
+        for (TileListener listener : tileListeners)
+            listener.onTileChanged(layerID, y, x);
+    }
+
+    public void addTileListener(TileListener listener) {
+        tileListeners.add(listener);
+    }
+
+    /**
+     * Returns whether an entity can walk on the tile at the specified position (i.e. neither solid nor a hole).
+     * @param y the row of the tile
+     * @param x the column of the tile
+     * @return whether the tile is walkable
+     */
+    public boolean isWalkable(int y, int x) {
+        return !this.collidingLayer[y][x] && !isHoleTile(y, x);
+    }
+
     /**
      * Returns the tile ID at the specified position in the specified layer.
      * @param layerID the ID of the layer to get the tile from
@@ -127,4 +178,11 @@ public class LayersComponent extends Component {
          return tileID == 79;
     }
 
+    /**
+     * Listener of the tile edits.
+     */
+    public interface TileListener {
+        void onTileChanged(int layerID, int y, int x);
+    }
+
 }
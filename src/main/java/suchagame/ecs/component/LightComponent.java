@@ -0,0 +1,58 @@
+package suchagame.ecs.component;
+
+/**
+ * Component for the entities emitting light (e.g. the player, fireballs or torches).
+ */
+public class LightComponent extends Component {
+    private final float radius;
+    private final int[] color;
+    private final float shimmer;
+
+    // radius of the current frame, changed on each shimmering
+    private float currentRadius;
+
+    /**
+     * Constructs a LightComponent object with a steady light.
+     * @param radius the radius of the light in pixels of the map
+     * @param color the color of the light as [red, green, blue] between 0 and 255
+     */
+    public LightComponent(float radius, int[] color) {
+        this(radius, color, 0f);
+    }
+
+    /**
+     * Constructs a LightComponent object with a shimmering light.
+     * @param radius the radius of the light in pixels of the map
+     * @param color the color of the light as [red, green, blue] between 0 and 255
+     * @param shimmer the range of the random change of the radius in pixels of the map
+     */
+    public LightComponent(float radius, int[] color, float shimmer) {
+        if (color.length != 3) {
+            throw new IllegalArgumentException("Light color must be [red, green, blue]");
+        }
+        this.radius = radius;
+        this.color = color;
+        this.shimmer = shimmer;
+        this.currentRadius = radius;
+    }
+
+    public float getRadius() {
+        return radius;
+    }
+
+    public int[] getColor() {
+        return color;
+    }
+
+    public float getShimmer() {
+        return shimmer;
+    }
+
+    public float getCurrentRadius() {
+        return currentRadius;
+    }
+
+    public void setCurrentRadius(float currentRadius) {
+        this.currentRadius = currentRadius;
+    }
+}
@@ -0,0 +1,120 @@
+package suchagame.ecs.component;
+
+import javafx.geometry.BoundingBox;
+import suchagame.ecs.entity.MapEntity;
+import suchagame.utils.Vector2f;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+/**
+ * Component for managing the spawn areas of the map.
+ * The free tiles of each area are listed once when the map is loaded, so that picking a spawn point
+ * is a constant time operation whatever the crowd in the area.
+ */
+public class SpawnComponent extends Component {
+    private final Map<String, BoundingBox> areas = new HashMap<>();
+
+    // free tiles of each area, each tile is packed as row * globalTileCountCols + col
+    private final Map<String, int[]> freeTiles = new HashMap<>();
+
+    /**
+     * Constructs a SpawnComponent object and lists the free tiles of each area.
+     *
+     * @param layersComponent the layers of the map
+     * @param areas the spawn areas in pixels as [x, y, width, height] by name
+     */
+    @Dependency(LayersComponent.class)
+    public SpawnComponent(LayersComponent layersComponent, Map<String, int[]> areas) {
+        for (Map.Entry<String, int[]> entry : areas.entrySet()) {
+            int[] bounds = entry.getValue();
+            BoundingBox area = new BoundingBox(bounds[0], bounds[1], bounds[2], bounds[3]);
+            this.areas.put(entry.getKey(), area);
+            this.freeTiles.put(entry.getKey(), listFreeTiles(layersComponent, area));
+        }
+    }
+
+    /**
+     * Lists the tiles overlapping the area that are empty on the top layer and are not holes.
+     *
+     * @param layersComponent the layers of the map
+     * @param area the area in pixels
+     * @return the packed free tiles of the area
+     */
+    private static int[] listFreeTiles(LayersComponent layersComponent, BoundingBox area) {
+        int[][] topLayer = layersComponent.getLayers().get(MapEntity.layersCount - 1);
+        int minCol = Math.max(0, (int) area.getMinX() / MapEntity.defaultTileSize);
+        int minRow = Math.max(0, (int) area.getMinY() / MapEntity.defaultTileSize);
+        int maxCol = Math.min(MapEntity.globalTileCountCols - 1, (int) (area.getMaxX() - 1) / MapEntity.defaultTileSize);
+        int maxRow = Math.min(MapEntity.globalTileCountRows - 1, (int) (area.getMaxY() - 1) / MapEntity.defaultTileSize);
+
+        int[] tiles = new int[Math.max(0, (maxRow - minRow + 1) * (maxCol - minCol + 1))];
+        int count = 0;
+        for (int row = minRow; row <= maxRow; row++) {
+            for (int col = minCol; col <= maxCol; col++) {
+                if (topLayer[row][col] == 0 && !layersComponent.isHoleTile(row, col))
+                    tiles[count++] = row * MapEntity.globalTileCountCols + col;
+            }
+        }
+        int[] freeTiles = new int[count];
+        System.arraycopy(tiles, 0, freeTiles, 0, count);
+        return freeTiles;
+    }
+
+    /**
+     * Picks a random spawn point on a free tile of the given area.
+     *
+     * @param areaName the name of the area
+     * @param random the generator to draw from
+     * @return the spawn point in pixels
+     * @throws IllegalArgumentException if the area does not exist
+     * @throws IllegalStateException if the area has no free tile
+     */
+    public Vector2f sample(String areaName, SplittableRandom random) {
+        BoundingBox area = getArea(areaName);
+        int[] tiles = freeTiles.get(areaName);
+        if (tiles.length == 0) {
+            throw new IllegalStateException("No free tile in spawn area " + areaName);
+        }
+        int tile = tiles[random.nextInt(tiles.length)];
+        int tileX = (tile % MapEntity.globalTileCountCols) * MapEntity.defaultTileSize;
+        int tileY = (tile / MapEntity.globalTileCountCols) * MapEntity.defaultTileSize;
+
+        // random point of the tile that is also inside the area
+        double minX = Math.max(tileX, area.getMinX());
+        double minY = Math.max(tileY, area.getMinY());
+        double maxX = Math.min(tileX + MapEntity.defaultTileSize, area.getMaxX());
+        double maxY = Math.min(tileY + MapEntity.defaultTileSize, area.getMaxY());
+        return new Vector2f(
+                (float) (minX + random.nextDouble() * (maxX - minX)),
+                (float) (minY + random.nextDouble() * (maxY - minY))
+        );
+    }
+
+    /**
+     * Returns the spawn area of the given name.
+     *
+     * @param areaName the name of the area
+     * @return the area in pixels
+     * @throws IllegalArgumentException if the area does not exist
+     */
+    public BoundingBox getArea(String areaName) {
+        BoundingBox area = areas.get(areaName);
+        if (area == null) {
+            throw new IllegalArgumentException("No spawn area " + areaName);
+        }
+        return area;
+    }
+
+    /**
+     * Returns the number of free tiles of the given area.
+     *
+     * @param areaName the name of the area
+     * @return the number of free tiles
+     */
+    public int getFreeTilesCount(String areaName) {
+        getArea(areaName);
+        return freeTiles.get(areaName).length;
+    }
+}
@@ -2,12 +2,14 @@ package suchagame.ecs.component;
 
 
 import javafx.geometry.BoundingBox;
+import suchagame.ecs.RandomManager;
 import suchagame.ecs.entity.Entity;
-import suchagame.ecs.entity.Mob;
 import suchagame.ecs.entity.Projectile;
 import suchagame.ui.Game;
 import suchagame.utils.Vector2f;
 
+import java.util.SplittableRandom;
+
 /**
  * Component for managing position-related data and actions.
  */
@@ -15,8 +17,15 @@ public class TransformComponent extends Component {
     private Vector2f position;
     private final Vector2f spawnOrigin;
 
-    // virtual position is used for rendering
+    // virtual position is used for rendering, only up to date while the entity is visible
     private final Vector2f virtualPosition = new Vector2f(0f, 0f);
+    private boolean visible = false;
+
+    // listener notified when the position is set (e.g. the spatial index of the entity manager)
+    private PositionListener positionListener;
+    // cell of the spatial index holding the entity and its slot in the cell, -1 if not indexed
+    private int gridCell = -1;
+    private int gridSlot = -1;
 
     /**
      * Creates a new TransformComponent based on a given position.
@@ -39,22 +48,17 @@ public class TransformComponent extends Component {
     }
 
     /**
-     * Creates a new TransformComponent based on a given position.
-     * @param eventualSpawnAreas possible spawn areas.
+     * Creates a new TransformComponent at a random free position of one of the given spawn areas.
+     * @param eventualSpawnAreas possible spawn areas (defined in the map config).
      */
     public TransformComponent(String[] eventualSpawnAreas) {
-        BoundingBox area = Mob.getRandomSpawnArea(eventualSpawnAreas);
-        this.spawnOrigin = new Vector2f((float) area.getCenterX(), (float) area.getCenterY());
-        LayersComponent layersComponent = Game.em.getMap().getComponent(LayersComponent.class);
+        SpawnComponent spawnComponent = Game.em.getMap().getComponent(SpawnComponent.class);
+        SplittableRandom random = Game.rm.get(RandomManager.Stream.SPAWN);
+        String areaName = eventualSpawnAreas[random.nextInt(eventualSpawnAreas.length)];
 
-        // rejection sampling
-        Vector2f testPosition = new Vector2f(0f, 0f);
-        do {
-            testPosition.setX((float) (Math.random() * area.getWidth() + area.getMinX()));
-            testPosition.setY((float) (Math.random() * area.getHeight() + area.getMinY()));
-        } while (layersComponent.getTile(1, testPosition) != 0);
-
-        this.position = testPosition;
+        BoundingBox area = spawnComponent.getArea(areaName);
+        this.spawnOrigin = new Vector2f((float) area.getCenterX(), (float) area.getCenterY());
+        this.position = spawnComponent.sample(areaName, random);
     }
 
     @Dynamic
@@ -84,6 +88,30 @@ public class TransformComponent extends Component {
 
     public void setPosition(Vector2f position) {
         this.position = position;
+        if (positionListener != null)
+            positionListener.onPositionChanged(position);
+    }
+
+    public void setPositionListener(PositionListener positionListener) {
+        this.positionListener = positionListener;
+    }
+
+    public int getGridCell() {
+        return this.gridCell;
+    }
+
+    public int getGridSlot() {
+        return this.gridSlot;
+    }
+
+    /**
+     * Sets the cell of the spatial index holding the entity and its slot in the cell, only set by the index.
+     * @param cell the cell, -1 if not indexed
+     * @param slot the slot in the cell, -1 if not indexed
+     */
+    public void setGridCell(int cell, int slot) {
+        this.gridCell = cell;
+        this.gridSlot = slot;
     }
 
     public Vector2f getVirtualPosition() {
@@ -94,4 +122,22 @@ public class TransformComponent extends Component {
         return this.spawnOrigin;
     }
 
+    /**
+     * Returns whether the entity was in the viewport of the camera when the last frame was rendered.
+     * @return whether the entity is visible.
+     */
+    public boolean isVisible() {
+        return this.visible;
+    }
+
+    public void setVisible(boolean visible) {
+        this.visible = visible;
+    }
+
+    /**
+     * Listener of the position changes.
+     */
+    public interface PositionListener {
+        void onPositionChanged(Vector2f position);
+    }
 }
\ No newline at end of file
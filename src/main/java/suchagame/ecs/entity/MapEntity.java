@@ -25,4 +25,20 @@ public class MapEntity extends Entity {
         globalTileCountCols = (int) Math.ceil((double) Game.width / defaultTileSize);
     }
 
+    /**
+     * Returns the width of the map in pixels.
+     * @return the width of the map
+     */
+    public static int getPixelWidth() {
+        return globalTileCountCols * defaultTileSize;
+    }
+
+    /**
+     * Returns the height of the map in pixels.
+     * @return the height of the map
+     */
+    public static int getPixelHeight() {
+        return globalTileCountRows * defaultTileSize;
+    }
+
 }
@@ -1,37 +1,23 @@
 package suchagame.ecs.entity;
 
-import javafx.geometry.BoundingBox;
-import java.util.HashMap;
-import java.util.Map;
+import suchagame.utils.Vector2f;
 
 public class Mob extends Entity {
-    private static final Map<String, BoundingBox> spawnAreas = initSpawnAreas();
-     private long lastAttack = System.currentTimeMillis();
+    // tick of the last attack of the mob, -1 if it has not attacked yet
+    private long lastAttack = -1;
     private final String tag;
+
+    // last waypoint given by the pathfinding and the state it was computed for
+    private Vector2f waypoint;
+    private int pathTile = -1;
+    private int pathGoalTile = -1;
+    private int pathVersion = -1;
+
     public Mob(String tag) {
         super();
         this.tag = tag;
     }
 
-    public static Map<String, BoundingBox> initSpawnAreas() {
-        return new HashMap<>(Map.of(
-                "northeast",
-                new BoundingBox(1150, 25,400, 250),
-                "southeast",
-                new BoundingBox(1500, 750,400, 250),
-                "all",
-                new BoundingBox(0, 0, 1920, 1080)
-        ));
-    }
-
-    /**
-     * get a random spawn area from the list of spawn areas
-     * @param eventualSpawnAreas list of spawn areas
-     */
-    public static BoundingBox getRandomSpawnArea(String[] eventualSpawnAreas) {
-        return spawnAreas.get(eventualSpawnAreas[(int) (Math.random() * eventualSpawnAreas.length)]);
-    }
-
     public long getLastAttack() {
         return lastAttack;
     }
@@ -39,4 +25,34 @@ public class Mob extends Entity {
     public void setLastAttack(long lastAttack) {
         this.lastAttack = lastAttack;
     }
+
+    public Vector2f getWaypoint() {
+        return waypoint;
+    }
+
+    public int getPathTile() {
+        return pathTile;
+    }
+
+    public int getPathGoalTile() {
+        return pathGoalTile;
+    }
+
+    public int getPathVersion() {
+        return pathVersion;
+    }
+
+    /**
+     * Keeps the waypoint given by the pathfinding with the state it was computed for.
+     * @param tile the tile of the mob
+     * @param goalTile the tile of the goal
+     * @param version the version of the abstract graph
+     * @param waypoint the waypoint
+     */
+    public void setPath(int tile, int goalTile, int version, Vector2f waypoint) {
+        this.pathTile = tile;
+        this.pathGoalTile = goalTile;
+        this.pathVersion = version;
+        this.waypoint = waypoint;
+    }
 }
\ No newline at end of file
@@ -4,42 +4,78 @@ import suchagame.ecs.component.AnimationComponent;
 import suchagame.ecs.component.GraphicComponent;
 import suchagame.ecs.entity.Entity;
 import suchagame.ui.Game;
-import suchagame.utils.Timer;
+import suchagame.ui.GameLoop;
+
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * System that handles animations.
+ * Animations are driven by the ticks of the simulation: the frame of an entity is computed from the tick
+ * its action started, thus only the visible entities are animated and the others resume in time when seen.
+ * The end of an action is an event checked every tick, whether the entity is visible or not.
  */
 public class AnimationSystem extends System {
+    // entities with an action waiting for its end, and the ones whose action ended this tick
+    private static final List<Entity> pendingActions = new ArrayList<>();
+    private static final List<Entity> endedActions = new ArrayList<>();
 
     /**
-     * Updates the animation of all entities that have an animation component.
+     * Updates the frame of the visible animated entities and runs the callbacks of the ended actions.
      */
     public static void update() {
-        for (Entity entity : Game.em.getAllWithComponent(AnimationComponent.class)) {
+        long tick = Game.sm.getTick();
+        for (Entity entity : GraphicSystem.getVisibleEntities()) {
             AnimationComponent animationComponent = entity.getComponent(AnimationComponent.class);
-            GraphicComponent graphicComponent = entity.getComponent(GraphicComponent.class);
-            long now = java.lang.System.currentTimeMillis();
-            // If the time elapsed since the last update is greater than the time between two frames, we update the frame.
-            if (now - animationComponent.getLastUpdate() > (1000 / animationComponent.getFramerate())) {
-                animationComponent.setCurrentFrameToNext();
-                // We update the origin of the graphic component to match the new frame.
-                graphicComponent.getOrigin()[0] = graphicComponent.getWidth() * animationComponent.getCurrentFrame();
-                graphicComponent.getOrigin()[1] = graphicComponent.getHeight() * animationComponent.getCurrentAction().ordinal();
-                animationComponent.setLastUpdate(now);
+            if (animationComponent == null)
+                continue;
+            int frame = animationComponent.updateFrame(tick, GameLoop.framerate);
+            int[] frameOrigins = animationComponent.getCurrentFrameOrigins();
+            // We update the origin of the graphic component to match the new frame.
+            int[] origin = entity.getComponent(GraphicComponent.class).getOrigin();
+            origin[0] = frameOrigins[frame * 2];
+            origin[1] = frameOrigins[frame * 2 + 1];
+        }
+
+        // callbacks are run after the loop as they may trigger other actions
+        for (int i = pendingActions.size() - 1; i >= 0; i--) {
+            AnimationComponent animationComponent = pendingActions.get(i).getComponent(AnimationComponent.class);
+            if (animationComponent.getActionEndTick() <= tick) {
+                endedActions.add(pendingActions.get(i));
+                pendingActions.set(i, pendingActions.get(pendingActions.size() - 1));
+                pendingActions.remove(pendingActions.size() - 1);
             }
         }
+        for (Entity entity : endedActions) {
+            AnimationComponent animationComponent = entity.getComponent(AnimationComponent.class);
+            Runnable callback = animationComponent.getActionEndCallback();
+            animationComponent.setActionEndCallback(null, 0);
+            if (callback != null)
+                callback.run();
+        }
+        endedActions.clear();
     }
 
     /**
-     * Triggers an action on an entity.
+     * Triggers an action on an entity, replacing the callback of its pending action if any.
      * @param entity The entity on which to trigger the action.
      * @param callback The callback to run after the action is finished.
      * @param action The action to trigger.
      */
     public static void triggerAction(Entity entity, Runnable callback, AnimationComponent.ACTION action) {
         AnimationComponent animationComponent = entity.getComponent(AnimationComponent.class);
-        long duration = animationComponent.getDurationOfAction(action);
-        animationComponent.setCurrentAction(action);
-        new Timer(duration, callback);
+        long tick = Game.sm.getTick();
+        long duration = animationComponent.getDurationOfAction(action, GameLoop.framerate);
+        animationComponent.setCurrentAction(action, tick);
+        if (animationComponent.getActionEndCallback() == null)
+            pendingActions.add(entity);
+        animationComponent.setActionEndCallback(callback, tick + duration);
+    }
+
+    /**
+     * Removes the pending actions (e.g. when the world is reset).
+     */
+    public static void clear() {
+        pendingActions.clear();
     }
 }
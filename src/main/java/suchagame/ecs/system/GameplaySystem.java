@@ -3,6 +3,7 @@ package suchagame.ecs.system;
 import suchagame.ecs.component.*;
 import suchagame.ecs.entity.Entity;
 import suchagame.ecs.entity.Item;
+import suchagame.ecs.entity.Mob;
 import suchagame.ecs.entity.Player;
 import suchagame.ecs.entity.Projectile;
 import suchagame.ui.Game;
@@ -18,10 +19,14 @@ import java.util.Map;
  * This class is responsible for the gameplay logic.
  */
 public class GameplaySystem extends System {
-    private static Timer cooldownTimer;
+    // cool down of the spells, pending while the player cannot cast
+    private final Timer cooldownTimer = new Timer(null);
 
     // cool down timer for regenerating some stats (e.g. mana)
-    private static Timer regenCooldownTimer;
+    private final Timer regenCooldownTimer = new Timer(() -> StatsSystem.setRegenPaused(false));
+
+    // number of times the NPC menu was opened or closed, the menu is shown by the application thread
+    private int npcMenuToggles = 0;
 
     /**
      * This method is called when the player pressed the attack button.
@@ -31,7 +36,7 @@ public class GameplaySystem extends System {
            check if the player is already casting a spell or if mana regeneration is still paused
            we stop the mana regeneration
         */
-        if (cooldownTimer != null && regenCooldownTimer != null) {
+        if (cooldownTimer.isPending()) {
             regenCooldownTimer.stop();
             return;
         }
@@ -54,16 +59,16 @@ public class GameplaySystem extends System {
             Game.em.addEntity(Projectile.class, tag);
 
             // reset the player's animation
-            animationComponent.setCurrentAction(AnimationComponent.ACTION.IDLE);
+            animationComponent.setCurrentAction(AnimationComponent.ACTION.IDLE, Game.sm.getTick());
 
             // restart the mana regeneration after 200ms of cool down
-            regenCooldownTimer = new Timer(200, () -> StatsSystem.regenTimeline.play());
+            regenCooldownTimer.schedule(200);
         };
         // start the attack animation
         AnimationSystem.triggerAction(Game.em.getPlayer(), r, AnimationComponent.ACTION.ATTACK);
         // start the cool down timer for the spell
-        cooldownTimer = new Timer(500, () -> cooldownTimer = null);
-        StatsSystem.regenTimeline.pause();
+        cooldownTimer.schedule(500);
+        StatsSystem.setRegenPaused(true);
     }
 
     /**
@@ -84,9 +89,6 @@ public class GameplaySystem extends System {
                 .orElse(inventoryItems.stream().filter(item -> item.getType() == type).findFirst().orElse(handItem));
 
         setHandItem(newItem);
-
-        // update the hand slot in the HUD
-        Game.hud.updateHandSlot(newItem);
     }
 
     /**
@@ -139,8 +141,6 @@ public class GameplaySystem extends System {
             }
             StatsSystem.useConsumable(Game.em.getPlayer(), item);
             InventorySystem.consumeItem(item);
-            // update the consumable item amount in the HUD
-            Game.hud.updateConsumableItemAmount();
         }
     }
 
@@ -150,7 +150,67 @@ public class GameplaySystem extends System {
     public void interactWithNPC() {
         if (isNearNPC()) {
             // display the NPC menu
-            Game.npcMenu.toggleNPCMenuView();
+            npcMenuToggles++;
+        }
+    }
+
+    public int getNPCMenuToggles() {
+        return npcMenuToggles;
+    }
+
+    /**
+     * Buys an item of the NPC with the slime drops of the player, if the player can afford it and the NPC has some left.
+     * The bought item becomes the hand item of the player.
+     * @param item The item to buy.
+     */
+    public void buyItem(Item item) {
+        Map<Item, Integer> npcInventory = Game.em.getNPC().getComponent(InventoryComponent.class).getInventory();
+        InventoryComponent inventoryComponent = Game.em.getPlayer().getComponent(InventoryComponent.class);
+        Map<Item, Integer> playerInventory = inventoryComponent.getInventory();
+
+        int quantity = npcInventory.get(item);
+        if (inventoryComponent.getSlimeDropAmount() < item.getSlimeDropValue() * 1.5 || quantity == 0)
+            return;
+        playerInventory.put(
+                Game.em.getItem("slime_drop"),
+                (int) (inventoryComponent.getSlimeDropAmount() - item.getSlimeDropValue() * 1.5)
+        );
+
+        npcInventory.put(item, quantity - 1);
+        playerInventory.merge(item, 1, Integer::sum);
+        setHandItem(item);
+        // the menu is only shown with a window
+        if (Game.npcMenu != null)
+            Game.npcMenu.setItemQuantity(item, quantity - 1);
+    }
+
+    /**
+     * Toggles the god mode: the player and the fireballs go through walls, the mobs lose their flags.
+     */
+    public void toggleGodMode() {
+        Game.gameMode = (Game.gameMode != Game.GameMode.GOD) ? Game.GameMode.GOD : Game.GameMode.NORMAL;
+        Game.em.getPlayer().getComponent(FlagComponent.class).setFlags(Game.gameMode == Game.GameMode.GOD);
+        Game.em.toggleFlagInModel(Projectile.class, "fireball", "noClip");
+        for (Entity e : Game.em.getEntities()) {
+            // check if entity is mob
+            if (e instanceof Mob) {
+                e.getComponent(FlagComponent.class).setFlags(false);
+            }
+        }
+    }
+
+    /**
+     * Toggles the hardcore mode: the mobs get all their flags.
+     */
+    public void toggleHardcoreMode() {
+        Game.gameMode = (Game.gameMode != Game.GameMode.HARDCORE) ? Game.GameMode.HARDCORE : Game.GameMode.NORMAL;
+        for (Entity e : Game.em.getEntities()) {
+            // check if entity is mob
+            if (e instanceof Mob) {
+                e.getComponent(FlagComponent.class).setFlags(Game.gameMode == Game.GameMode.HARDCORE);
+            }
+            Game.em.getPlayer().getComponent(FlagComponent.class).setFlags(Game.gameMode == Game.GameMode.GOD);
+            Game.em.toggleFlagInModel(Projectile.class, "fireball", "noClip");
         }
     }
 
@@ -175,12 +235,15 @@ public class GameplaySystem extends System {
             if (entity instanceof Player) {
                 // if the player dies, the game is over
                 Game.endGame("GAME OVER");
-            } else if (Game.em.getEntityCount() == Game.em.getItemsCount() + 3)
-                // if the player kills all the enemies, the game is won
+            } else if (Game.em.getEntityCount() == Game.em.getItemsCount() + 3 && Game.sm.get(SpawnSystem.class).isDone())
+                // if the player kills all the enemies of all the waves, the game is won
                 Game.endGame("YOU WIN");
         };
         if (entity.hasComponent(StatsComponent.class)) {
             StatsComponent statsComponent = entity.getComponent(StatsComponent.class);
+            // the death burst is only emitted once (e.g. an entity in a hole is killed on every tick)
+            if (statsComponent.isAlive)
+                Game.sm.get(ParticleSystem.class).emitDeath(entity);
             // set the hp to 0 useful for the hud to display the correct hp
             statsComponent.setObservableStat("hp", 0);
             statsComponent.isAlive = false;
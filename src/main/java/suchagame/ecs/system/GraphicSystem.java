@@ -1,17 +1,20 @@
 package suchagame.ecs.system;
 
 import javafx.geometry.BoundingBox;
-import javafx.scene.canvas.GraphicsContext;
-import javafx.scene.paint.Color;
+import suchagame.ecs.component.CameraFocusComponent;
 import suchagame.ecs.component.GraphicComponent;
 import suchagame.ecs.component.PhysicComponent;
 import suchagame.ecs.component.TransformComponent;
 import suchagame.ecs.entity.Entity;
 import suchagame.ui.Camera;
+import suchagame.ui.DebugDraw;
 import suchagame.ui.Game;
+import suchagame.ui.RenderQueue;
+import suchagame.ui.RenderSnapshot;
 import suchagame.utils.Vector2f;
 
-import static java.lang.Float.NaN;
+import java.util.ArrayList;
+import java.util.List;
 
 
 /**
@@ -19,55 +22,93 @@ import static java.lang.Float.NaN;
  */
 public class GraphicSystem extends System {
 
-    public static boolean renderHitBoxes = false;
+    // draws of the visible entities, reused every frame
+    private static final RenderQueue renderQueue = new RenderQueue();
+
+    // margin around the viewport when querying the spatial index, larger than any hit box
+    private static final float cullingMargin = 64f;
+    // entities in the cells overlapping the viewport, and the visible ones among them
+    private static final List<Entity> candidates = new ArrayList<>();
+    private static final List<Entity> visibleEntities = new ArrayList<>();
 
     /**
-     * Renders the visible entities
+     * Renders the visible entities into the snapshot of the frame, sorted by layer and depth
      *
-     * @param gc the graphics context
+     * @param snapshot the snapshot drawn by the application thread
      */
-    public static void render(GraphicsContext gc) {
-        for (Entity entity : Game.em.getAllWithComponent(GraphicComponent.class)) {
-            GraphicComponent graphicComponent = entity.getComponent(GraphicComponent.class);
-            // Update the position to render
-            Vector2f virtualPosition = updateVirtualPosition(entity, graphicComponent);
+    public static void render(RenderSnapshot snapshot) {
+        updateVirtualPositions();
 
-            // Skip if the entity is not visible
-            if (Float.isNaN(virtualPosition.getX()) || Float.isNaN(virtualPosition.getY()))
-                continue;
+        renderQueue.clear();
+        for (Entity entity : visibleEntities) {
+            GraphicComponent graphicComponent = entity.getComponent(GraphicComponent.class);
+            Vector2f virtualPosition = entity.getComponent(TransformComponent.class).getVirtualPosition();
 
-            // Render the entity
-            gc.drawImage(
+            // Queue the entity
+            RenderQueue.DrawCommand command = graphicComponent.getDrawCommand();
+            command.setSource(
                     graphicComponent.getSprite(),
-                    graphicComponent.getOrigin()[0],
-                    graphicComponent.getOrigin()[1],
+                    graphicComponent.getTextureID(),
+                    graphicComponent.getLayer(),
+                    graphicComponent.getSourceX(),
+                    graphicComponent.getSourceY(),
                     graphicComponent.getWidth(),
-                    graphicComponent.getHeight(),
+                    graphicComponent.getHeight()
+            );
+            command.setDestination(
                     virtualPosition.getX(),
                     virtualPosition.getY(),
                     graphicComponent.getWidth() * Camera.scale,
                     graphicComponent.getHeight() * Camera.scale
             );
-            if (renderHitBoxes)
-                renderHitBoxes();
+            renderQueue.add(command);
+        }
+        renderQueue.submit(snapshot);
+
+        if (DebugDraw.enabled) {
+            debugDrawHitBoxes();
+            Game.em.debugDrawSpatialIndex(Camera.viewport);
         }
     }
 
     /**
-     * Updates the virtual position of the entity
+     * Culls the entities with the spatial index and updates the visibility and the virtual position
+     * of the ones around the viewport, without rendering them (e.g. when there is no window).
+     */
+    public static void updateVirtualPositions() {
+        // entities of the previous frame are hidden unless they are still in the viewport
+        for (Entity entity : visibleEntities)
+            entity.getComponent(TransformComponent.class).setVisible(false);
+        visibleEntities.clear();
+
+        candidates.clear();
+        Game.em.queryArea(Camera.viewport, cullingMargin, candidates);
+        for (Entity entity : candidates) {
+            GraphicComponent graphicComponent = entity.getComponent(GraphicComponent.class);
+            if (graphicComponent == null)
+                continue;
+            if (updateVirtualPosition(entity, graphicComponent)) {
+                entity.getComponent(TransformComponent.class).setVisible(true);
+                visibleEntities.add(entity);
+            }
+        }
+    }
+
+    /**
+     * Updates the virtual position of the entity if it is visible
      *
      * @param entity           the entity
      * @param graphicComponent the graphic component of the entity
-     * @return the virtual position of the entity
+     * @return whether the entity is visible
      */
-    public static Vector2f updateVirtualPosition(Entity entity, GraphicComponent graphicComponent) {
+    public static boolean updateVirtualPosition(Entity entity, GraphicComponent graphicComponent) {
 
         Vector2f position = entity.getComponent(TransformComponent.class).getPosition();
         Vector2f virtualPosition = entity.getComponent(TransformComponent.class).getVirtualPosition();
         BoundingBox viewport = Camera.viewport;
 
-        // player entity
-        if (entity.getClass().getSimpleName().equals("Player")) {
+        // entity followed by the camera (i.e. the player)
+        if (entity.hasComponent(CameraFocusComponent.class)) {
             /*
                 If the entity is in the free space, we center it
                 Otherwise, we render it at its position
@@ -79,55 +120,51 @@ public class GraphicSystem extends System {
             virtualPosition.setY((position.getY() > Game.freeSpace.getMinY() && position.getY() < Game.freeSpace.getMaxY()) ?
                     (Game.height - graphicComponent.getHeight() * Camera.scale) / 2 :
                     (float) (position.getY() - viewport.getMinY() - (float) graphicComponent.getHeight() / 2) * Camera.scale);
+            return true;
+        }
 
+        // other entities are visible if their hit box anchored on their position is in the viewport
+        BoundingBox boundingBox = entity.getComponent(PhysicComponent.class).getHitBox();
+        if (position.getX() + boundingBox.getWidth() < viewport.getMinX() || position.getX() > viewport.getMaxX() ||
+                position.getY() < viewport.getMinY() || position.getY() - boundingBox.getHeight() > viewport.getMaxY())
+            return false;
+
+        // Update the virtual position of the entity
+        virtualPosition.setX(
+                (float) (position.getX() - viewport.getMinX() - graphicComponent.getWidth() / 2f) * Camera.scale
+        );
+        virtualPosition.setY(
+                (float) ((position.getY() - viewport.getMinY() - graphicComponent.getHeight() * 0.9f) * Camera.scale)
+        );
+        return true;
+    }
 
-        }
-        // other entities that have transform and physic components
-        else if (entity.hasComponent(TransformComponent.class)) {
-            BoundingBox boundingBox = entity.getComponent(PhysicComponent.class).getHitBox();
-            // If the entity is in the viewport, we render it
-            if (viewport.intersects(new BoundingBox(
-                    position.getX(),
-                    position.getY() - boundingBox.getHeight(),
-                    boundingBox.getWidth(),
-                    boundingBox.getHeight()
-            ))) {
-                // Update the virtual position of the entity
-                virtualPosition.setX(
-                        (float) (position.getX() - viewport.getMinX() - graphicComponent.getWidth() / 2f) * Camera.scale
-                );
-                virtualPosition.setY(
-                        (float) ((position.getY() - viewport.getMinY() - graphicComponent.getHeight() * 0.9f) * Camera.scale)
-                );
-            } else {
-                // Otherwise, we set the virtual position to NaN
-                virtualPosition.setX(NaN);
-                virtualPosition.setY(NaN);
-            }
-        }
-        return virtualPosition;
+    /**
+     * Returns the entities visible in the last rendered frame.
+     *
+     * @return the visible entities
+     */
+    public static List<Entity> getVisibleEntities() {
+        return visibleEntities;
     }
 
     /**
-     * Renders the hit boxes of the entities
+     * Appends the hit boxes of the visible entities to the debug commands
      */
-    public static void renderHitBoxes() {
-        for (Entity entity : Game.em.getAllWithComponent(GraphicComponent.class)) {
+    public static void debugDrawHitBoxes() {
+        BoundingBox viewport = Camera.viewport;
+        for (Entity entity : visibleEntities) {
             GraphicComponent graphicComponent = entity.getComponent(GraphicComponent.class);
-            updateVirtualPosition(entity, graphicComponent);
             Vector2f virtualPosition = entity.getComponent(TransformComponent.class).getVirtualPosition();
-            // Skip if the entity is not visible
-            if (Float.isNaN(virtualPosition.getX()) || Float.isNaN(virtualPosition.getY()))
-                continue;
 
-            // Render the hit box for the entity
+            // hit box anchored like the sprite, brought back from the canvas to the map
             BoundingBox boundingBox = entity.getComponent(PhysicComponent.class).getHitBox();
-            Game.gc.setStroke(Color.LAWNGREEN);
-            Game.gc.strokeRect(
-                    virtualPosition.getX() + (boundingBox.getMinX() + graphicComponent.getWidth() / 2f) * Camera.scale,
-                    virtualPosition.getY() + (boundingBox.getMinY() + graphicComponent.getHeight() / 2f) * Camera.scale,
-                    boundingBox.getWidth() * Camera.scale,
-                    boundingBox.getHeight() * Camera.scale
+            DebugDraw.rect(
+                    DebugDraw.Category.HIT_BOX,
+                    (float) (virtualPosition.getX() / Camera.scale + boundingBox.getMinX() + graphicComponent.getWidth() / 2f + viewport.getMinX()),
+                    (float) (virtualPosition.getY() / Camera.scale + boundingBox.getMinY() + graphicComponent.getHeight() / 2f + viewport.getMinY()),
+                    (float) boundingBox.getWidth(),
+                    (float) boundingBox.getHeight()
             );
         }
     }
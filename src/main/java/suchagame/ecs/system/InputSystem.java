@@ -4,25 +4,32 @@ import javafx.scene.Scene;
 import javafx.scene.input.KeyCode;
 import javafx.scene.input.KeyEvent;
 import suchagame.ecs.entity.Item;
+import suchagame.replay.InputRecording;
+import suchagame.ui.DebugDraw;
 import suchagame.ui.Game;
 
-import java.util.HashMap;
-import java.util.Map;
-import java.util.Set;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * This class is responsible for handling user input.
+ * Key events are gathered between two ticks and applied once per tick as an input mask, which makes
+ * the input stream recordable and replayable.
  */
 public class InputSystem extends System {
 
-    Map<KeyCode, Boolean> keyDown = new HashMap<>(Map.of(
-            KeyCode.Z, false,
-            KeyCode.Q, false,
-            KeyCode.S, false,
-            KeyCode.D, false
-    ));
+    // keys that are held down (e.g. movement), their index is their bit in the input mask
+    private static final List<KeyCode> keyDown = List.of(
+            KeyCode.Z,
+            KeyCode.Q,
+            KeyCode.S,
+            KeyCode.D
+    );
 
-    Set<KeyCode> keyPressed = Set.of(
+    // keys that trigger an action once per press, their index + keyDown size is their bit in the input mask
+    private static final List<KeyCode> keyPressed = List.of(
             KeyCode.AMPERSAND,
             KeyCode.DEAD_ACUTE,
             KeyCode.QUOTEDBL,
@@ -31,6 +38,32 @@ public class InputSystem extends System {
             KeyCode.A
     );
 
+    /**
+     * Gameplay commands that are not keys of the input mask, applied and recorded with the tick they run on.
+     */
+    public enum Command {
+        // toggle the god mode (e.g. F5)
+        GOD_MODE,
+        // toggle the hardcore mode (e.g. F6)
+        HARDCORE_MODE,
+        // buy an item in the NPC menu, the argument is the tag of the item
+        BUY_ITEM
+    }
+
+    private record PendingCommand(Command command, String argument) {
+    }
+
+    // state of the keys as reported by the event handlers (application thread) since the last tick
+    private volatile int heldMask;
+    private final AtomicInteger pressedMask = new AtomicInteger();
+    // commands issued by the application thread since the last tick
+    private final Queue<PendingCommand> pendingCommands = new ConcurrentLinkedQueue<>();
+
+    // input mask applied during the current tick
+    private int tickMask;
+
+    private InputRecording recording;
+    private boolean isReplaying;
 
     /**
      * Constructs a new InputSystem.
@@ -45,16 +78,34 @@ public class InputSystem extends System {
         initKeyPressedEvent(scene);
     }
 
+    /**
+     * Constructs a new InputSystem that plays back a recorded input stream instead of listening to a scene.
+     *
+     * @param recording the recording to play back
+     */
+    public InputSystem(InputRecording recording) {
+        this.recording = recording;
+        this.isReplaying = true;
+    }
+
     /**
      * Initializes the key down event.
      *
      * @param scene the scene to listen to
      */
     private void initKeyDownEvent(Scene scene) {
-        // toggle corresponding value to simulate key down
-        scene.addEventHandler(KeyEvent.KEY_PRESSED, event -> keyDown.put(event.getCode(), true));
+        // toggle corresponding bit to simulate key down
+        scene.addEventHandler(KeyEvent.KEY_PRESSED, event -> {
+            int index = keyDown.indexOf(event.getCode());
+            if (index >= 0)
+                heldMask |= 1 << index;
+        });
 
-        scene.addEventHandler(KeyEvent.KEY_RELEASED, event -> keyDown.put(event.getCode(), false));
+        scene.addEventHandler(KeyEvent.KEY_RELEASED, event -> {
+            int index = keyDown.indexOf(event.getCode());
+            if (index >= 0)
+                heldMask &= ~(1 << index);
+        });
     }
 
     /**
@@ -64,46 +115,140 @@ public class InputSystem extends System {
      */
     private void initKeyPressedEvent(Scene scene) {
         scene.addEventHandler(KeyEvent.KEY_PRESSED, event -> {
-            if (keyPressed.contains(event.getCode())) {
-                switch (event.getCode()) {
-                    // switch hand artefact
-                    case AMPERSAND -> Game.sm.get(GameplaySystem.class).switchHandItem(Item.ItemType.ARTEFACT);
+            int index = keyPressed.indexOf(event.getCode());
+            if (index >= 0)
+                pressedMask.accumulateAndGet(1 << (keyDown.size() + index), (mask, bit) -> mask | bit);
+
+            // toggle the debug overlay (hit boxes, spatial index, paths and contacts)
+            if (event.getCode() == KeyCode.F4) {
+                DebugDraw.enabled = !DebugDraw.enabled;
+            }
+            event.consume();
+        });
+    }
+
+    /**
+     * Issues a gameplay command, applied at the start of the next tick (e.g. by the application thread).
+     *
+     * @param command the command
+     * @param argument the argument of the command (e.g. the tag of the item bought), empty if none
+     */
+    public void command(Command command, String argument) {
+        pendingCommands.add(new PendingCommand(command, argument));
+    }
+
+    /**
+     * Applies the input of the current tick: either the keys and the commands gathered since the last tick
+     * or the next recorded mask and commands when replaying. Keys pressed since the last tick trigger their
+     * action once.
+     */
+    public void update() {
+        if (isReplaying) {
+            tickMask = recording.hasNextTick() ? recording.nextTick() : 0;
+        } else {
+            tickMask = heldMask | pressedMask.getAndSet(0);
+            if (recording != null)
+                recording.record(tickMask);
+        }
 
-                    // switch hand spell
-                    case DEAD_ACUTE -> Game.sm.get(GameplaySystem.class).switchHandItem(Item.ItemType.SPELL);
+        for (int i = 0; i < keyPressed.size(); i++) {
+            if ((tickMask & (1 << (keyDown.size() + i))) == 0)
+                continue;
+            switch (keyPressed.get(i)) {
+                // switch hand artefact
+                case AMPERSAND -> Game.sm.get(GameplaySystem.class).switchHandItem(Item.ItemType.ARTEFACT);
 
-                    // switch hand consumable
-                    case QUOTEDBL -> Game.sm.get(GameplaySystem.class).switchHandItem(Item.ItemType.CONSUMABLE);
+                // switch hand spell
+                case DEAD_ACUTE -> Game.sm.get(GameplaySystem.class).switchHandItem(Item.ItemType.SPELL);
 
-                    // use current consumable
-                    case B -> Game.sm.get(GameplaySystem.class).useCurrentConsumable();
+                // switch hand consumable
+                case QUOTEDBL -> Game.sm.get(GameplaySystem.class).switchHandItem(Item.ItemType.CONSUMABLE);
 
-                    // cast spell
-                    case E -> Game.sm.get(GameplaySystem.class).castSpell();
+                // use current consumable
+                case B -> Game.sm.get(GameplaySystem.class).useCurrentConsumable();
 
-                    // interact with NPC
-                    case A -> Game.sm.get(GameplaySystem.class).interactWithNPC();
-                }
+                // cast spell
+                case E -> Game.sm.get(GameplaySystem.class).castSpell();
+
+                // interact with NPC
+                case A -> Game.sm.get(GameplaySystem.class).interactWithNPC();
             }
-            // toggle hit boxes rendering of all entities
-            if (event.getCode() == KeyCode.F4) {
-                GraphicSystem.renderHitBoxes = !GraphicSystem.renderHitBoxes;
+        }
+
+        if (isReplaying) {
+            while (recording.hasNextCommand())
+                applyCommand(recording.nextCommand(), recording.getCommandArgument());
+        } else {
+            PendingCommand pending;
+            while ((pending = pendingCommands.poll()) != null) {
+                if (recording != null)
+                    recording.recordCommand(pending.command(), pending.argument());
+                applyCommand(pending.command(), pending.argument());
             }
-            event.consume();
-        });
+        }
+    }
+
+    /**
+     * Applies a gameplay command.
+     *
+     * @param command the command
+     * @param argument the argument of the command
+     */
+    private void applyCommand(Command command, String argument) {
+        GameplaySystem gameplaySystem = Game.sm.get(GameplaySystem.class);
+        switch (command) {
+            case GOD_MODE -> gameplaySystem.toggleGodMode();
+            case HARDCORE_MODE -> gameplaySystem.toggleHardcoreMode();
+            case BUY_ITEM -> gameplaySystem.buyItem(Game.em.getItem(argument));
+        }
+    }
+
+    /**
+     * Starts recording the input mask of every tick.
+     *
+     * @param seed the seed of the recorded session
+     */
+    public void startRecording(long seed) {
+        this.recording = new InputRecording(seed);
+    }
+
+    /**
+     * Returns the recording being played back or recorded, if any.
+     *
+     * @return the recording or null
+     */
+    public InputRecording getRecording() {
+        return recording;
     }
 
     /**
      * Remove all listeners
      */
     public void removeListeners() {
+        if (Game.scene == null)
+            return;
         Game.scene.removeEventHandler(KeyEvent.KEY_PRESSED, event -> {
         });
         Game.scene.removeEventHandler(KeyEvent.KEY_RELEASED, event -> {
         });
     }
 
+    /**
+     * Returns the bit of the key in the input mask (e.g. to script the input of a scenario).
+     *
+     * @param key the key
+     * @return the bit of the key, 0 if the key is not an input of the game
+     */
+    public static int getKeyMask(KeyCode key) {
+        int index = keyDown.indexOf(key);
+        if (index >= 0)
+            return 1 << index;
+        index = keyPressed.indexOf(key);
+        return (index >= 0) ? 1 << (keyDown.size() + index) : 0;
+    }
+
     public boolean isKeyDown(KeyCode key) {
-        return keyDown.get(key);
+        int index = keyDown.indexOf(key);
+        return index >= 0 && (tickMask & (1 << index)) != 0;
     }
 }
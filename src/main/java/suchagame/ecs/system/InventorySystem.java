@@ -27,8 +27,6 @@ public class InventorySystem extends System {
             for (Map.Entry<Item, Integer> entry : entityInventory.entrySet()) {
                 // merge the inventory of the mob to the player
                 playerInventory.merge(entry.getKey(), entry.getValue(), Integer::sum);
-                Game.hud.updateSlimeDropAmount();
-                Game.hud.updateConsumableItemAmount();
             }
         }
     }
@@ -0,0 +1,196 @@
+package suchagame.ecs.system;
+
+import suchagame.ecs.RandomManager;
+import suchagame.ecs.component.GraphicComponent;
+import suchagame.ecs.component.LightComponent;
+import suchagame.ecs.component.TransformComponent;
+import suchagame.ecs.entity.Entity;
+import suchagame.ui.Camera;
+import suchagame.ui.Game;
+import suchagame.ui.GameLoop;
+import suchagame.ui.Light;
+import suchagame.ui.RenderSnapshot;
+import suchagame.utils.Vector2f;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * System that accumulates the lights of the visible entities into the lightmap of the frame.
+ * The lightmap has a lower resolution than the canvas (e.g. a quarter of it) and at most a fixed number
+ * of lights are accumulated per frame, the closest to the center of the screen, so that the cost of the
+ * lighting stays bounded whatever the number of lights.
+ */
+public class LightSystem extends System {
+    // maximum number of lights accumulated per frame
+    public static final int lightBudget = 32;
+    // ticks between two shimmerings of the lights (i.e. about 80 ms)
+    private static final long shimmeringDelay = Math.max(1, Math.round(80 * GameLoop.framerate / 1000f));
+    // ratio of the radius where the light starts to fade to black
+    private static final float fadeStart = 0.75f;
+    // resolution of the falloff table over the squared distance ratio
+    private static final int falloffSteps = 1024;
+
+    // falloff of the light by squared distance ratio, in fixed point (256 is full light)
+    private static final int[] falloff = new int[falloffSteps];
+    static {
+        for (int i = 0; i < falloffSteps; i++) {
+            float t = (float) Math.sqrt((double) i / falloffSteps);
+            falloff[i] = (t <= fadeStart) ? 256 : Math.round(256 * (1 - t) / (1 - fadeStart));
+        }
+    }
+
+    // candidate lights of the frame, 6 floats each (x, y, radius on the canvas, red, green, blue)
+    private static float[] candidates = new float[lightBudget * 6];
+    private static float[] distances = new float[lightBudget];
+    // indices of the candidates, partially ordered by distance when over budget
+    private static int[] order = new int[0];
+
+    // accumulated light by channel, as many pixels as the lightmap
+    private static final int[] red = new int[Light.mapWidth * Light.mapHeight];
+    private static final int[] green = new int[Light.mapWidth * Light.mapHeight];
+    private static final int[] blue = new int[Light.mapWidth * Light.mapHeight];
+
+    /**
+     * Accumulates the lights of the visible entities into the lightmap of the snapshot.
+     * The virtual positions must be up to date (i.e. the entities were rendered first).
+     *
+     * @param snapshot the snapshot drawn by the application thread
+     */
+    public static void render(RenderSnapshot snapshot) {
+        shimmer();
+
+        int count = 0;
+        float centerX = Game.width / 2f, centerY = Game.height / 2f;
+        for (Entity entity : GraphicSystem.getVisibleEntities()) {
+            LightComponent lightComponent = entity.getComponent(LightComponent.class);
+            if (lightComponent == null)
+                continue;
+            GraphicComponent graphicComponent = entity.getComponent(GraphicComponent.class);
+            Vector2f virtualPosition = entity.getComponent(TransformComponent.class).getVirtualPosition();
+
+            if (count == distances.length) {
+                candidates = Arrays.copyOf(candidates, count * 2 * 6);
+                distances = Arrays.copyOf(distances, count * 2);
+            }
+            float x = virtualPosition.getX() + graphicComponent.getWidth() * Camera.scale / 2;
+            float y = virtualPosition.getY() + graphicComponent.getHeight() * Camera.scale / 2;
+            int[] color = lightComponent.getColor();
+            int offset = count * 6;
+            candidates[offset] = x;
+            candidates[offset + 1] = y;
+            candidates[offset + 2] = lightComponent.getCurrentRadius() * Camera.scale;
+            candidates[offset + 3] = color[0];
+            candidates[offset + 4] = color[1];
+            candidates[offset + 5] = color[2];
+            distances[count] = (x - centerX) * (x - centerX) + (y - centerY) * (y - centerY);
+            count++;
+        }
+
+        Arrays.fill(red, 0);
+        Arrays.fill(green, 0);
+        Arrays.fill(blue, 0);
+        if (count <= lightBudget) {
+            for (int i = 0; i < count; i++)
+                accumulate(i * 6);
+        } else {
+            // over budget, only keep the lights closest to the center of the screen
+            if (order.length < count)
+                order = new int[distances.length];
+            for (int i = 0; i < count; i++)
+                order[i] = i;
+            selectClosest(count, lightBudget);
+            for (int i = 0; i < lightBudget; i++)
+                accumulate(order[i] * 6);
+        }
+
+        int[] lightmap = snapshot.getLightmap();
+        for (int i = 0; i < lightmap.length; i++) {
+            lightmap[i] = 0xFF000000
+                    | Math.min(red[i], 255) << 16
+                    | Math.min(green[i], 255) << 8
+                    | Math.min(blue[i], 255);
+        }
+        snapshot.setLightCount(Math.min(count, lightBudget));
+    }
+
+    /**
+     * Partially orders the candidates so that the closest ones to the center are first, in no particular order,
+     * with a quickselect over their indices that neither sorts nor allocates.
+     *
+     * @param count the number of candidates
+     * @param k the number of closest candidates to move first
+     */
+    private static void selectClosest(int count, int k) {
+        int left = 0, right = count - 1;
+        while (left < right) {
+            float pivot = distances[order[(left + right) >>> 1]];
+            int i = left, j = right;
+            while (i <= j) {
+                while (distances[order[i]] < pivot) i++;
+                while (distances[order[j]] > pivot) j--;
+                if (i <= j) {
+                    int swap = order[i];
+                    order[i++] = order[j];
+                    order[j--] = swap;
+                }
+            }
+            // keep partitioning the side holding the k-th candidate
+            if (k - 1 <= j)
+                right = j;
+            else if (k - 1 >= i)
+                left = i;
+            else
+                return;
+        }
+    }
+
+    /**
+     * Changes the radius of the visible shimmering lights in their random range every shimmering delay,
+     * on the ticks of the simulation so that the draws of the light stream only depend on the seed.
+     */
+    private static void shimmer() {
+        if (Game.sm.getTick() % shimmeringDelay != 0)
+            return;
+
+        SplittableRandom random = Game.rm.get(RandomManager.Stream.LIGHT);
+        for (Entity entity : GraphicSystem.getVisibleEntities()) {
+            LightComponent lightComponent = entity.getComponent(LightComponent.class);
+            if (lightComponent != null && lightComponent.getShimmer() > 0)
+                lightComponent.setCurrentRadius(lightComponent.getRadius() +
+                        (float) (random.nextDouble() - 0.5) * lightComponent.getShimmer());
+        }
+    }
+
+    /**
+     * Adds a light to the accumulated light of the pixels of the lightmap it covers.
+     *
+     * @param offset the offset of the light in the candidates
+     */
+    private static void accumulate(int offset) {
+        float x = candidates[offset] / Light.downscale;
+        float y = candidates[offset + 1] / Light.downscale;
+        float radius = candidates[offset + 2] / Light.downscale;
+        int r = (int) candidates[offset + 3], g = (int) candidates[offset + 4], b = (int) candidates[offset + 5];
+        if (radius <= 0)
+            return;
+
+        int minX = Math.max(0, (int) (x - radius)), maxX = Math.min(Light.mapWidth - 1, (int) (x + radius));
+        int minY = Math.max(0, (int) (y - radius)), maxY = Math.min(Light.mapHeight - 1, (int) (y + radius));
+        float scale = falloffSteps / (radius * radius);
+        for (int py = minY; py <= maxY; py++) {
+            float dy = py + 0.5f - y;
+            int row = py * Light.mapWidth;
+            for (int px = minX; px <= maxX; px++) {
+                float dx = px + 0.5f - x;
+                int step = (int) ((dx * dx + dy * dy) * scale);
+                if (step >= falloffSteps)
+                    continue;
+                int light = falloff[step];
+                red[row + px] += r * light >> 8;
+                green[row + px] += g * light >> 8;
+                blue[row + px] += b * light >> 8;
+            }
+        }
+    }
+}
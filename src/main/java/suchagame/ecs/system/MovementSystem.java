@@ -1,6 +1,7 @@
 package suchagame.ecs.system;
 
 import javafx.scene.input.KeyCode;
+import suchagame.ecs.component.FlagComponent;
 import suchagame.ecs.component.PhysicComponent;
 import suchagame.ecs.component.StatsComponent;
 import suchagame.ecs.component.TransformComponent;
@@ -8,6 +9,7 @@ import suchagame.ecs.entity.Entity;
 import suchagame.ecs.entity.Mob;
 import suchagame.ecs.entity.Player;
 import suchagame.ecs.entity.Projectile;
+import suchagame.ui.DebugDraw;
 import suchagame.ui.Game;
 import suchagame.utils.Vector2f;
 
@@ -85,9 +87,15 @@ public class MovementSystem extends System {
         Vector2f playerPosition = Game.em.getPlayer().getComponent(TransformComponent.class).getPosition();
         playerPosition = playerPosition.add(new Vector2f(8, 8));
 
-        // move the mob towards the player
+        // move the mob towards the player, following the pathfinding unless it can go through walls
+        Vector2f target = playerPosition;
+        FlagComponent flagComponent = mob.getComponent(FlagComponent.class);
+        if (flagComponent == null || !flagComponent.getFlag("noClip"))
+            target = Game.sm.get(PathfindingSystem.class).getWaypoint(mob, mobPosition, playerPosition);
+        DebugDraw.arrow(DebugDraw.Category.PATH, mobPosition.getX(), mobPosition.getY(), target.getX(), target.getY());
+
         float speed = mob.getComponent(StatsComponent.class).getStat("spd");
-        Vector2f direction = playerPosition.sub(mobPosition).normalize();
+        Vector2f direction = target.sub(mobPosition).normalize();
         PhysicComponent physicComponent = mob.getComponent(PhysicComponent.class);
         physicComponent.setVelocity(direction.mul(speed));
         Vector2f checkPosition = mobPosition.add(physicComponent.getVelocity());
@@ -0,0 +1,213 @@
+package suchagame.ecs.system;
+
+import org.yaml.snakeyaml.Yaml;
+import suchagame.Main;
+import suchagame.ecs.RandomManager;
+import suchagame.ecs.component.EmitterComponent;
+import suchagame.ecs.component.TransformComponent;
+import suchagame.ecs.entity.Entity;
+import suchagame.ui.Game;
+import suchagame.ui.RenderSnapshot;
+import suchagame.utils.Vector2f;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+/**
+ * System that simulates and renders the particles (e.g. trails and bursts) defined in the particle config.
+ * Particles are not entities: they are stored in preallocated arrays, one per attribute, and a dead particle
+ * is replaced by the last live one, thus updating and rendering them never allocates.
+ */
+public class ParticleSystem extends System {
+    private final int capacity;
+    private final List<Emitter> emitters = new ArrayList<>();
+    private final Map<String, Integer> emitterIDs = new HashMap<>();
+
+    // live particles, the first count entries of the arrays
+    private int count = 0;
+    private final float[] x, y;
+    private final float[] vx, vy;
+    private final float[] life, maxLife;
+    // color as opaque RGB, faded out over the lifetime
+    private final int[] color;
+    private final int[] emitter;
+
+    /**
+     * Constructs the particle system with the emitters of the particle config.
+     */
+    public ParticleSystem() {
+        this("config/particle.yml");
+    }
+
+    /**
+     * Constructs the particle system with the emitters of the given config.
+     *
+     * @param configPath the path of the particle config relative to the resources
+     */
+    @SuppressWarnings("unchecked")
+    public ParticleSystem(String configPath) {
+        Map<String, Object> config;
+        try (InputStream inputStream = Main.class.getResourceAsStream(configPath)) {
+            config = ((Map<String, Map<String, Object>>) new Yaml().load(inputStream)).get("particles");
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+        this.capacity = (int) config.get("capacity");
+        for (Map.Entry<String, Map<String, Object>> entry : ((Map<String, Map<String, Object>>) config.get("emitters")).entrySet()) {
+            emitterIDs.put(entry.getKey(), emitters.size());
+            emitters.add(new Emitter(entry.getValue()));
+        }
+
+        this.x = new float[capacity];
+        this.y = new float[capacity];
+        this.vx = new float[capacity];
+        this.vy = new float[capacity];
+        this.life = new float[capacity];
+        this.maxLife = new float[capacity];
+        this.color = new int[capacity];
+        this.emitter = new int[capacity];
+    }
+
+    /**
+     * Emits the trails of the visible entities and moves the particles by one tick, removing the dead ones.
+     */
+    public void update() {
+        for (Entity entity : GraphicSystem.getVisibleEntities()) {
+            EmitterComponent emitterComponent = entity.getComponent(EmitterComponent.class);
+            if (emitterComponent == null || emitterComponent.getTrail() == null)
+                continue;
+            Integer emitterID = emitterIDs.get(emitterComponent.getTrail());
+            if (emitterID == null)
+                continue;
+            float debt = emitterComponent.getTrailDebt() + emitters.get(emitterID).rate;
+            Vector2f position = entity.getComponent(TransformComponent.class).getPosition();
+            emit(emitterID, position.getX(), position.getY(), (int) debt);
+            emitterComponent.setTrailDebt(debt - (int) debt);
+        }
+
+        int i = 0;
+        while (i < count) {
+            life[i]--;
+            if (life[i] <= 0) {
+                // swap the last live particle in the slot of the dead one
+                count--;
+                x[i] = x[count];
+                y[i] = y[count];
+                vx[i] = vx[count];
+                vy[i] = vy[count];
+                life[i] = life[count];
+                maxLife[i] = maxLife[count];
+                color[i] = color[count];
+                emitter[i] = emitter[count];
+                continue;
+            }
+            Emitter particleEmitter = emitters.get(emitter[i]);
+            vx[i] *= particleEmitter.drag;
+            vy[i] = vy[i] * particleEmitter.drag + particleEmitter.gravity;
+            x[i] += vx[i];
+            y[i] += vy[i];
+            i++;
+        }
+    }
+
+    /**
+     * Emits the death burst of the entity, if it has one.
+     *
+     * @param entity the entity being killed
+     */
+    public void emitDeath(Entity entity) {
+        EmitterComponent emitterComponent = entity.getComponent(EmitterComponent.class);
+        if (emitterComponent == null || emitterComponent.getDeath() == null)
+            return;
+        Integer emitterID = emitterIDs.get(emitterComponent.getDeath());
+        if (emitterID == null)
+            return;
+        Vector2f position = entity.getComponent(TransformComponent.class).getPosition();
+        emit(emitterID, position.getX(), position.getY(), emitters.get(emitterID).burst);
+    }
+
+    /**
+     * Emits particles at the given position, the ones beyond the capacity are dropped.
+     *
+     * @param emitterID the id of the emitter
+     * @param originX the x position in pixels of the map
+     * @param originY the y position in pixels of the map
+     * @param amount the number of particles
+     */
+    private void emit(int emitterID, float originX, float originY, int amount) {
+        Emitter particleEmitter = emitters.get(emitterID);
+        SplittableRandom random = Game.rm.get(RandomManager.Stream.PARTICLE);
+        amount = Math.min(amount, capacity - count);
+        for (int i = 0; i < amount; i++) {
+            double angle = random.nextDouble(2 * Math.PI);
+            float speed = particleEmitter.minSpeed + (float) random.nextDouble() * (particleEmitter.maxSpeed - particleEmitter.minSpeed);
+            float particleLife = particleEmitter.minLife + (float) random.nextDouble() * (particleEmitter.maxLife - particleEmitter.minLife);
+            x[count] = originX;
+            y[count] = originY;
+            vx[count] = (float) Math.cos(angle) * speed;
+            vy[count] = (float) Math.sin(angle) * speed;
+            life[count] = particleLife;
+            maxLife[count] = particleLife;
+            color[count] = particleEmitter.color;
+            emitter[count] = emitterID;
+            count++;
+        }
+    }
+
+    /**
+     * Blends the live particles over the frame of the snapshot, faded by their remaining life.
+     *
+     * @param snapshot the snapshot drawn by the application thread
+     */
+    public void render(RenderSnapshot snapshot) {
+        for (int i = 0; i < count; i++) {
+            int alpha = (int) (255 * life[i] / maxLife[i]);
+            snapshot.drawParticle(x[i], y[i], emitters.get(emitter[i]).size, alpha << 24 | color[i]);
+        }
+        snapshot.setParticleCount(count);
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Definition of an emitter of the particle config.
+     */
+    private static class Emitter {
+        private final float rate;
+        private final int burst;
+        private final float minLife, maxLife;
+        private final float minSpeed, maxSpeed;
+        private final float gravity;
+        private final float drag;
+        private final int size;
+        private final int color;
+
+        @SuppressWarnings("unchecked")
+        private Emitter(Map<String, Object> data) {
+            this.rate = ((Number) data.getOrDefault("rate", 0)).floatValue();
+            this.burst = ((Number) data.getOrDefault("burst", 0)).intValue();
+            List<Number> lifeRange = (List<Number>) data.get("life");
+            this.minLife = lifeRange.get(0).floatValue();
+            this.maxLife = lifeRange.get(1).floatValue();
+            List<Number> speedRange = (List<Number>) data.get("speed");
+            this.minSpeed = speedRange.get(0).floatValue();
+            this.maxSpeed = speedRange.get(1).floatValue();
+            this.gravity = ((Number) data.getOrDefault("gravity", 0)).floatValue();
+            this.drag = ((Number) data.getOrDefault("drag", 1)).floatValue();
+            this.size = ((Number) data.getOrDefault("size", 1)).intValue();
+            List<Number> rgb = (List<Number>) data.get("color");
+            this.color = rgb.get(0).intValue() << 16 | rgb.get(1).intValue() << 8 | rgb.get(2).intValue();
+        }
+    }
+}
@@ -0,0 +1,396 @@
+package suchagame.ecs.system;
+
+import suchagame.ecs.component.LayersComponent;
+import suchagame.ecs.entity.MapEntity;
+import suchagame.ecs.entity.Mob;
+import suchagame.ui.Game;
+import suchagame.utils.Vector2f;
+
+import java.util.*;
+
+/**
+ * System that finds the way of the mobs to the player with hierarchical pathfinding (HPA*).
+ * The map is cut into square clusters linked by entrances on their borders. The abstract graph of the entrances
+ * is updated cluster by cluster when tiles are edited, and the distances from every entrance to a goal tile
+ * are computed once and shared by all the mobs chasing that goal. The goal is a temporary node linked to the
+ * entrances it reaches inside its cluster, thus a cluster split by walls is entered on the side of the goal.
+ * A mob only explores its own cluster to reach the best entrance (or the goal in the goal cluster), so the cost
+ * per mob does not grow with the map.
+ */
+public final class PathfindingSystem extends System {
+    // size of a cluster in tiles
+    private static final int clusterSize = 8;
+    // entrances longer than this get a transition at each end instead of a single one in the middle
+    private static final int maxSingleTransitionLength = 6;
+    // number of goal tiles whose distances are kept
+    private static final int cacheSize = 16;
+
+    private final LayersComponent layersComponent;
+    private final int rows, cols;
+    private final int clusterRows, clusterCols;
+
+    // transitions {tile inside the cluster, tile inside the right (or lower) neighbour} of each border
+    private final List<List<int[]>> rightBorders;
+    private final List<List<int[]>> lowerBorders;
+
+    // abstract graph: edges of each node (i.e. entrance tile) grouped by cluster
+    private final List<Map<Integer, List<Edge>>> clusterGraphs = new ArrayList<>();
+
+    // distances from each node to the goal tile, shared by all the mobs with the same goal tile
+    private final Map<Integer, Map<Integer, Float>> distancesCache = new LinkedHashMap<>(cacheSize, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, Map<Integer, Float>> eldest) {
+            return size() > cacheSize;
+        }
+    };
+    private int graphVersion = 0;
+
+    // buffers of the searches inside a cluster
+    private final int[] localDistances = new int[clusterSize * clusterSize];
+    private final int[] localParents = new int[clusterSize * clusterSize];
+    private final int[] localQueue = new int[clusterSize * clusterSize];
+
+    /**
+     * Constructs the system by building the abstract graph of the map.
+     */
+    public PathfindingSystem() {
+        this.layersComponent = Game.em.getMap().getComponent(LayersComponent.class);
+        this.rows = MapEntity.globalTileCountRows;
+        this.cols = MapEntity.globalTileCountCols;
+        this.clusterRows = (rows + clusterSize - 1) / clusterSize;
+        this.clusterCols = (cols + clusterSize - 1) / clusterSize;
+
+        int clusterCount = clusterRows * clusterCols;
+        this.rightBorders = new ArrayList<>(clusterCount);
+        this.lowerBorders = new ArrayList<>(clusterCount);
+        for (int cluster = 0; cluster < clusterCount; cluster++) {
+            rightBorders.add(findTransitions(cluster, true));
+            lowerBorders.add(findTransitions(cluster, false));
+            clusterGraphs.add(new HashMap<>());
+        }
+        for (int cluster = 0; cluster < clusterCount; cluster++)
+            buildCluster(cluster);
+
+        layersComponent.addTileListener((layerID, y, x) -> updateTile(y, x));
+    }
+
+    /**
+     * Updates the abstract graph around an edited tile: the borders of its cluster and the neighbour clusters.
+     *
+     * @param y the row of the tile
+     * @param x the column of the tile
+     */
+    public void updateTile(int y, int x) {
+        int clusterRow = y / clusterSize;
+        int clusterCol = x / clusterSize;
+        int cluster = clusterRow * clusterCols + clusterCol;
+
+        rightBorders.set(cluster, findTransitions(cluster, true));
+        lowerBorders.set(cluster, findTransitions(cluster, false));
+        if (clusterCol > 0)
+            rightBorders.set(cluster - 1, findTransitions(cluster - 1, true));
+        if (clusterRow > 0)
+            lowerBorders.set(cluster - clusterCols, findTransitions(cluster - clusterCols, false));
+
+        buildCluster(cluster);
+        if (clusterCol > 0) buildCluster(cluster - 1);
+        if (clusterCol < clusterCols - 1) buildCluster(cluster + 1);
+        if (clusterRow > 0) buildCluster(cluster - clusterCols);
+        if (clusterRow < clusterRows - 1) buildCluster(cluster + clusterCols);
+
+        distancesCache.clear();
+        graphVersion++;
+    }
+
+    /**
+     * Finds the transitions between a cluster and its right or lower neighbour.
+     *
+     * @param cluster the cluster
+     * @param right   true for the right border, false for the lower one
+     * @return the transitions as {tile inside the cluster, tile inside the neighbour}
+     */
+    private List<int[]> findTransitions(int cluster, boolean right) {
+        List<int[]> transitions = new ArrayList<>();
+        int clusterRow = cluster / clusterCols;
+        int clusterCol = cluster % clusterCols;
+        if ((right && clusterCol == clusterCols - 1) || (!right && clusterRow == clusterRows - 1))
+            return transitions;
+
+        // the border is walked along a line of tiles inside the cluster and the parallel line inside the neighbour
+        int length = right ? Math.min(clusterSize, rows - clusterRow * clusterSize)
+                           : Math.min(clusterSize, cols - clusterCol * clusterSize);
+        int start = -1;
+        for (int i = 0; i <= length; i++) {
+            boolean open = i < length && isOpenAcross(clusterRow, clusterCol, right, i);
+            if (open && start < 0) {
+                start = i;
+            } else if (!open && start >= 0) {
+                int end = i - 1;
+                if (end - start + 1 < maxSingleTransitionLength) {
+                    transitions.add(transitionAt(clusterRow, clusterCol, right, (start + end) / 2));
+                } else {
+                    transitions.add(transitionAt(clusterRow, clusterCol, right, start));
+                    transitions.add(transitionAt(clusterRow, clusterCol, right, end));
+                }
+                start = -1;
+            }
+        }
+        return transitions;
+    }
+
+    private boolean isOpenAcross(int clusterRow, int clusterCol, boolean right, int i) {
+        int[] transition = transitionAt(clusterRow, clusterCol, right, i);
+        return isWalkable(transition[0]) && isWalkable(transition[1]);
+    }
+
+    private int[] transitionAt(int clusterRow, int clusterCol, boolean right, int i) {
+        if (right) {
+            int y = clusterRow * clusterSize + i;
+            int x = (clusterCol + 1) * clusterSize - 1;
+            return new int[]{y * cols + x, y * cols + x + 1};
+        }
+        int y = (clusterRow + 1) * clusterSize - 1;
+        int x = clusterCol * clusterSize + i;
+        return new int[]{y * cols + x, (y + 1) * cols + x};
+    }
+
+    private boolean isWalkable(int tile) {
+        return layersComponent.isWalkable(tile / cols, tile % cols);
+    }
+
+    /**
+     * Rebuilds the nodes of a cluster with their intra-cluster edges (searched inside the cluster)
+     * and inter-cluster edges (transitions to the neighbours).
+     *
+     * @param cluster the cluster
+     */
+    private void buildCluster(int cluster) {
+        Map<Integer, List<Edge>> graph = clusterGraphs.get(cluster);
+        graph.clear();
+
+        int clusterRow = cluster / clusterCols;
+        int clusterCol = cluster % clusterCols;
+        // transitions as seen from this cluster: {own tile, neighbour tile}
+        List<int[]> transitions = new ArrayList<>();
+        for (int[] transition : rightBorders.get(cluster))
+            transitions.add(transition);
+        for (int[] transition : lowerBorders.get(cluster))
+            transitions.add(transition);
+        if (clusterCol > 0)
+            for (int[] transition : rightBorders.get(cluster - 1))
+                transitions.add(new int[]{transition[1], transition[0]});
+        if (clusterRow > 0)
+            for (int[] transition : lowerBorders.get(cluster - clusterCols))
+                transitions.add(new int[]{transition[1], transition[0]});
+
+        for (int[] transition : transitions) {
+            graph.computeIfAbsent(transition[0], node -> new ArrayList<>()).add(new Edge(transition[1], 1f));
+        }
+
+        // intra-cluster edges between every pair of nodes that are connected inside the cluster
+        List<Integer> nodes = new ArrayList<>(graph.keySet());
+        for (int node : nodes) {
+            searchCluster(cluster, node);
+            for (int other : nodes) {
+                int distance = localDistances[toLocal(cluster, other)];
+                if (other != node && distance >= 0)
+                    graph.get(node).add(new Edge(other, distance));
+            }
+        }
+    }
+
+    /**
+     * Breadth-first search inside a cluster from the given tile, filling the local distances and parents.
+     *
+     * @param cluster the cluster
+     * @param from    the starting tile
+     */
+    private void searchCluster(int cluster, int from) {
+        Arrays.fill(localDistances, -1);
+        int minY = (cluster / clusterCols) * clusterSize;
+        int minX = (cluster % clusterCols) * clusterSize;
+        int maxY = Math.min(minY + clusterSize, rows);
+        int maxX = Math.min(minX + clusterSize, cols);
+
+        int head = 0, tail = 0;
+        int start = toLocal(cluster, from);
+        localDistances[start] = 0;
+        localParents[start] = -1;
+        localQueue[tail++] = start;
+        while (head < tail) {
+            int current = localQueue[head++];
+            int y = minY + current / clusterSize;
+            int x = minX + current % clusterSize;
+            for (int direction = 0; direction < 4; direction++) {
+                int ny = y + (direction == 0 ? -1 : direction == 1 ? 1 : 0);
+                int nx = x + (direction == 2 ? -1 : direction == 3 ? 1 : 0);
+                if (ny < minY || ny >= maxY || nx < minX || nx >= maxX || !layersComponent.isWalkable(ny, nx))
+                    continue;
+                int next = (ny - minY) * clusterSize + (nx - minX);
+                if (localDistances[next] >= 0)
+                    continue;
+                localDistances[next] = localDistances[current] + 1;
+                localParents[next] = current;
+                localQueue[tail++] = next;
+            }
+        }
+    }
+
+    private int toLocal(int cluster, int tile) {
+        int y = tile / cols - (cluster / clusterCols) * clusterSize;
+        int x = tile % cols - (cluster % clusterCols) * clusterSize;
+        return y * clusterSize + x;
+    }
+
+    private int toTile(int cluster, int local) {
+        int y = (cluster / clusterCols) * clusterSize + local / clusterSize;
+        int x = (cluster % clusterCols) * clusterSize + local % clusterSize;
+        return y * cols + x;
+    }
+
+    /**
+     * Returns the distances from every node to the goal tile, computed with Dijkstra on the abstract graph
+     * the first time the goal tile is requested.
+     * The goal is linked to the nodes of its cluster by their distances inside the cluster, the nodes it does
+     * not reach inside the cluster (e.g. behind a wall) are reached through the neighbour clusters.
+     *
+     * @param goalTile the goal tile
+     * @return the distances by node
+     */
+    private Map<Integer, Float> getDistancesTo(int goalTile) {
+        Map<Integer, Float> distances = distancesCache.get(goalTile);
+        if (distances != null)
+            return distances;
+
+        distances = new HashMap<>();
+        PriorityQueue<float[]> queue = new PriorityQueue<>(Comparator.comparingDouble(entry -> entry[1]));
+        int goalCluster = clusterOf(goalTile);
+        searchCluster(goalCluster, goalTile);
+        for (int node : clusterGraphs.get(goalCluster).keySet()) {
+            int localDistance = localDistances[toLocal(goalCluster, node)];
+            if (localDistance < 0)
+                continue;
+            distances.put(node, (float) localDistance);
+            queue.add(new float[]{node, localDistance});
+        }
+        while (!queue.isEmpty()) {
+            float[] entry = queue.poll();
+            int node = (int) entry[0];
+            if (entry[1] > distances.get(node))
+                continue;
+            for (Edge edge : clusterGraphs.get(clusterOf(node)).get(node)) {
+                float distance = entry[1] + edge.cost;
+                if (distance < distances.getOrDefault(edge.to, Float.POSITIVE_INFINITY)) {
+                    distances.put(edge.to, distance);
+                    queue.add(new float[]{edge.to, distance});
+                }
+            }
+        }
+        distancesCache.put(goalTile, distances);
+        return distances;
+    }
+
+    private int clusterOf(int tile) {
+        return (tile / cols / clusterSize) * clusterCols + (tile % cols) / clusterSize;
+    }
+
+    /**
+     * Returns the point a mob should head to in order to reach the goal.
+     * The waypoint is kept until the mob or the goal changes tile, or the abstract graph changes.
+     *
+     * @param mob      the mob
+     * @param position the position of the mob in pixels
+     * @param goal     the goal position in pixels (e.g. the player)
+     * @return the waypoint in pixels
+     */
+    public Vector2f getWaypoint(Mob mob, Vector2f position, Vector2f goal) {
+        int tile = toTileIndex(position);
+        int goalTile = toTileIndex(goal);
+        int cluster = clusterOf(tile);
+
+        // no need to search on the tile of the goal, mobs head straight to it
+        if (tile == goalTile || !isWalkable(tile))
+            return goal;
+
+        if (mob.getPathTile() == tile && mob.getPathGoalTile() == goalTile &&
+                mob.getPathVersion() == graphVersion && mob.getWaypoint() != null)
+            return mob.getWaypoint();
+
+        Map<Integer, Float> distances = getDistancesTo(goalTile);
+        searchCluster(cluster, tile);
+
+        // best among the goal if reached inside the goal cluster, the nodes of the cluster reached through the
+        // cluster and the transitions of the current tile
+        float bestCost = Float.POSITIVE_INFINITY;
+        int bestTile = -1;
+        boolean isTransition = false;
+        if (cluster == clusterOf(goalTile) && localDistances[toLocal(cluster, goalTile)] >= 0) {
+            bestCost = localDistances[toLocal(cluster, goalTile)];
+            bestTile = goalTile;
+        }
+        Map<Integer, List<Edge>> graph = clusterGraphs.get(cluster);
+        for (int node : graph.keySet()) {
+            int localDistance = localDistances[toLocal(cluster, node)];
+            Float distance = distances.get(node);
+            if (node == tile || localDistance < 0 || distance == null)
+                continue;
+            if (localDistance + distance < bestCost) {
+                bestCost = localDistance + distance;
+                bestTile = node;
+                isTransition = false;
+            }
+        }
+        if (graph.containsKey(tile)) {
+            for (Edge edge : graph.get(tile)) {
+                Float distance = distances.get(edge.to);
+                if (clusterOf(edge.to) != cluster && distance != null && edge.cost + distance <= bestCost) {
+                    bestCost = edge.cost + distance;
+                    bestTile = edge.to;
+                    isTransition = true;
+                }
+            }
+        }
+
+        // unreachable goal: fall back to heading straight to it
+        if (bestTile < 0)
+            return goal;
+
+        // first step towards the best node inside the cluster
+        int nextTile = bestTile;
+        if (!isTransition) {
+            int local = toLocal(cluster, bestTile);
+            while (localParents[local] != toLocal(cluster, tile))
+                local = localParents[local];
+            nextTile = toTile(cluster, local);
+        }
+        // the last step heads straight to the goal
+        if (nextTile == goalTile)
+            return goal;
+
+        Vector2f waypoint = new Vector2f(
+                (nextTile % cols + 0.5f) * MapEntity.defaultTileSize,
+                (nextTile / cols + 0.5f) * MapEntity.defaultTileSize
+        );
+        mob.setPath(tile, goalTile, graphVersion, waypoint);
+        return waypoint;
+    }
+
+    private int toTileIndex(Vector2f position) {
+        int y = Math.max(0, Math.min(rows - 1, (int) position.getY() / MapEntity.defaultTileSize));
+        int x = Math.max(0, Math.min(cols - 1, (int) position.getX() / MapEntity.defaultTileSize));
+        return y * cols + x;
+    }
+
+    /**
+     * Edge of the abstract graph.
+     */
+    private static class Edge {
+        private final int to;
+        private final float cost;
+
+        private Edge(int to, float cost) {
+            this.to = to;
+            this.cost = cost;
+        }
+    }
+}
@@ -9,11 +9,16 @@ import suchagame.ecs.entity.Entity;
 import suchagame.ecs.entity.MapEntity;
 import suchagame.ecs.entity.Mob;
 import suchagame.ecs.entity.Player;
+import suchagame.jfr.CollisionEvent;
+import suchagame.ui.DebugDraw;
 import suchagame.ui.Game;
+import suchagame.ui.GameLoop;
+import suchagame.utils.Profiler;
 import suchagame.utils.Utils;
 import suchagame.utils.Vector2f;
 
-import java.util.Objects;
+import java.util.ArrayList;
+import java.util.List;
 
 
 /**
@@ -21,6 +26,15 @@ import java.util.Objects;
  * It checks for collisions between entities and the map boundaries, as well as collisions between entities themselves.
  */
 public class PhysicSystem {
+    // collision checks and colliding pairs of entities of the current tick, emitted as a flight recorder event
+    private static int checkCount = 0;
+    private static int pairCount = 0;
+    // ticks between two attacks of a mob (i.e. 250 ms)
+    private static final long attackDelay = 250L * GameLoop.framerate / 1000;
+    // distance from the position of an entity to the far side of its hit box, larger than any hit box
+    private static final float collisionMargin = 64f;
+    // entities of the spatial index around the checked hit box, reused by every check
+    private static final List<Entity> nearbyEntities = new ArrayList<>();
 
     /**
      * Checks for collision of an entity with the environment and other nearby entities.
@@ -38,18 +52,26 @@ public class PhysicSystem {
         PhysicComponent physicComponent = entity.getComponent(PhysicComponent.class);
         BoundingBox hitBox = Utils.translateHitBox(entityPosition, physicComponent.getHitBox());
 
+        // the collisions are checked by the movements, their time is profiled apart
+        Profiler profiler = Game.sm.getProfiler();
+        Profiler.Section section = profiler.enter(Profiler.Section.PHYSICS);
+        checkCount++;
+
         // Check for collision with nearby entities
         checkCollisionWithNearbyEntities(entity, hitBox);
 
         // With the no clip flag, the entity can go through walls but not the map boundaries
+        boolean canMove;
         FlagComponent flagComponent = entity.getComponent(FlagComponent.class);
         if (flagComponent != null && flagComponent.getFlag("noClip")) {
-            return !(entityPosition.getX() < 0 || entityPosition.getY() < 0 ||
+            canMove = !(entityPosition.getX() < 0 || entityPosition.getY() < 0 ||
                 entityPosition.getX() > Game.width || entityPosition.getY() > Game.height);
+        } else {
+            // Check for collision with the map boundaries
+            canMove = mapCheckCollision(entity, hitBox, entityPosition);
         }
-
-        // Check for collision with the map boundaries
-        return mapCheckCollision(entity, hitBox, entityPosition);
+        profiler.enter(section);
+        return canMove;
     }
 
     /**
@@ -60,13 +82,15 @@ public class PhysicSystem {
      * @param hitBox  the bounding box of the entity
      */
     private static void checkCollisionWithNearbyEntities(Entity entity, BoundingBox hitBox) {
-        // Iterate through all entities with a physics component
-        for (Entity otherEntity : Game.em.getAllWithComponent(PhysicComponent.class)) {
-            if (entity == otherEntity)
+        // only the entities of the cells of the spatial index around the hit box may collide with it
+        nearbyEntities.clear();
+        Game.em.queryArea(hitBox, collisionMargin, nearbyEntities);
+        for (Entity otherEntity : nearbyEntities) {
+            if (entity == otherEntity || !otherEntity.hasComponent(PhysicComponent.class))
                 continue;
 
-            // Skip entities with NaN positions (invalid or inactive entities)
-            if (Objects.equals(otherEntity.getComponent(TransformComponent.class).getVirtualPosition(), new Vector2f(Float.NaN)))
+            // Skip entities out of the viewport (inactive entities)
+            if (!otherEntity.getComponent(TransformComponent.class).isVisible())
                 continue;
 
             PhysicComponent otherPhysicComponent = otherEntity.getComponent(PhysicComponent.class);
@@ -75,13 +99,20 @@ public class PhysicSystem {
 
             // Check for collision between the two entities
             if (hitBox.intersects(otherHitBox)) {
+                pairCount++;
+                // contact point at the center of the overlap of the hit boxes
+                DebugDraw.point(
+                        DebugDraw.Category.CONTACT,
+                        (float) (Math.max(hitBox.getMinX(), otherHitBox.getMinX()) + Math.min(hitBox.getMaxX(), otherHitBox.getMaxX())) / 2,
+                        (float) (Math.max(hitBox.getMinY(), otherHitBox.getMinY()) + Math.min(hitBox.getMaxY(), otherHitBox.getMaxY())) / 2
+                );
                 if (entity.getClass() != otherEntity.getClass()) {
-                    // If the entity is a mob, it can only attack every 250ms
-                    if (entity instanceof Mob && java.lang.System.currentTimeMillis() - ((Mob) entity).getLastAttack() > 250) {
+                    // If the entity is a mob, it can only attack every 250ms of simulation
+                    if (entity instanceof Mob mob && canAttack(mob)) {
                         // Deal damage to the other entity
                         StatsSystem.takeDamage(entity, otherEntity);
-                        // Update the last attack time of the mob entity
-                        ((Mob) entity).setLastAttack(java.lang.System.currentTimeMillis());
+                        // Update the tick of the last attack of the mob entity
+                        mob.setLastAttack(Game.sm.getTick());
                     } else if (!(entity instanceof Mob)) {
                         // Deal damage to the other entity
                         StatsSystem.takeDamage(entity, otherEntity);
@@ -92,6 +123,16 @@ public class PhysicSystem {
         }
     }
 
+    /**
+     * Checks whether the attack delay of a mob elapsed since its last attack, in ticks of the simulation.
+     *
+     * @param mob the mob
+     * @return true if the mob can attack
+     */
+    private static boolean canAttack(Mob mob) {
+        return mob.getLastAttack() < 0 || Game.sm.getTick() - mob.getLastAttack() > attackDelay;
+    }
+
     /**
      * Handles the collision between two entities by resolving their positions and velocities.
      * The collision normal, relative velocity, and coefficients of restitution are used to calculate the impulse and update the entities' positions.
@@ -247,4 +288,21 @@ public class PhysicSystem {
 
         return true;
     }
-}
\ No newline at end of file
+
+    /**
+     * Emits the collision counts of the tick as a flight recorder event if it is recorded, and resets them.
+     *
+     * @param tick the tick of the simulation
+     */
+    public static void commitCollisions(long tick) {
+        CollisionEvent collisionEvent = new CollisionEvent();
+        if (collisionEvent.isEnabled()) {
+            collisionEvent.tick = tick;
+            collisionEvent.checkCount = checkCount;
+            collisionEvent.pairCount = pairCount;
+            collisionEvent.commit();
+        }
+        checkCount = 0;
+        pairCount = 0;
+    }
+}
@@ -0,0 +1,217 @@
+package suchagame.ecs.system;
+
+import org.yaml.snakeyaml.Yaml;
+import suchagame.Main;
+import suchagame.ecs.RandomManager;
+import suchagame.ecs.component.SpawnComponent;
+import suchagame.ecs.component.TransformComponent;
+import suchagame.ecs.entity.Entity;
+import suchagame.ecs.entity.Mob;
+import suchagame.ecs.entity.Projectile;
+import suchagame.ui.Game;
+import suchagame.ui.GameLoop;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.*;
+
+/**
+ * System that spawns the waves of mobs defined in the wave config, or of projectiles cast from the player
+ * (e.g. in the stress scenarios).
+ * Due mobs are queued in a backlog which is drained within a budget per tick, thus a large wave is spread
+ * over several frames instead of causing a hitch. The budget is a number of mobs per tick, so that the
+ * headless, recorded and replayed runs spawn the same mobs on the same ticks whatever the machine, or a time
+ * budget for the interactive play only.
+ */
+public class SpawnSystem extends System {
+    // time budget per tick for instantiating mobs in nanoseconds
+    private static final long frameBudget = 2_000_000;
+    // number of mobs instantiated per tick at most, unless given by the config
+    public static final int defaultTickBudget = 50;
+
+    private final List<Wave> waves = new ArrayList<>();
+    private int tickBudget = defaultTickBudget;
+    private boolean isTimeBudget = false;
+    private final ArrayDeque<SpawnRequest> backlog = new ArrayDeque<>();
+    private long tick = 0;
+
+    // latency in ticks between the moment the last mob was due and its spawn
+    private long lastLatency = 0;
+    // average time to instantiate a mob in nanoseconds
+    private long averageSpawnTime = 0;
+
+    /**
+     * Constructs the spawn system with the waves of the wave config.
+     */
+    public SpawnSystem() {
+        this("config/wave.yml");
+    }
+
+    /**
+     * Constructs the spawn system with the waves of the given config.
+     *
+     * @param configPath the path of the wave config relative to the resources
+     */
+    @SuppressWarnings("unchecked")
+    public SpawnSystem(String configPath) {
+        try (InputStream inputStream = Main.class.getResourceAsStream(configPath)) {
+            Map<String, Object> data = new Yaml().load(inputStream);
+            for (Map<String, Object> waveData : (List<Map<String, Object>>) data.get("waves")) {
+                waves.add(new Wave(waveData));
+            }
+            this.tickBudget = ((Number) data.getOrDefault("budget", defaultTickBudget)).intValue();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Constructs the spawn system with the given waves (e.g. the ones of a scenario).
+     *
+     * @param wavesData the waves, with the same fields as in the wave config
+     * @param tickBudget the number of mobs instantiated per tick at most
+     */
+    public SpawnSystem(List<Map<String, Object>> wavesData, int tickBudget) {
+        for (Map<String, Object> waveData : wavesData) {
+            waves.add(new Wave(waveData));
+        }
+        this.tickBudget = tickBudget;
+    }
+
+    /**
+     * Spawns the queued mobs within a time budget per tick instead of a number of mobs, for the interactive
+     * play only: the mobs spawned on a tick then depend on the machine.
+     */
+    public void useTimeBudget() {
+        this.isTimeBudget = true;
+    }
+
+    /**
+     * Queues the mobs of the due waves and spawns as many queued mobs as the budget allows.
+     */
+    public void update() {
+        for (Wave wave : waves) {
+            while (wave.remaining > 0 && wave.nextTick <= tick) {
+                for (int i = 0; i < wave.count; i++)
+                    backlog.add(new SpawnRequest(wave, wave.nextTick));
+                wave.nextTick += wave.every;
+                wave.remaining--;
+            }
+        }
+
+        long start = java.lang.System.nanoTime();
+        long elapsed = 0;
+        int spawned = 0;
+        // at least one mob is spawned per tick whatever the budget
+        while (!backlog.isEmpty() && (isTimeBudget ? elapsed < frameBudget : spawned < Math.max(1, tickBudget))) {
+            SpawnRequest request = backlog.poll();
+            spawned++;
+            spawn(request.wave);
+            lastLatency = tick - request.dueTick;
+
+            long now = java.lang.System.nanoTime();
+            long spawnTime = now - start - elapsed;
+            averageSpawnTime = (averageSpawnTime == 0) ? spawnTime : (averageSpawnTime * 7 + spawnTime) / 8;
+            elapsed = now - start;
+        }
+        tick++;
+    }
+
+    /**
+     * Spawns a mob of the given wave in one of its regions, or a projectile from the player.
+     *
+     * @param wave the wave of the mob
+     */
+    private void spawn(Wave wave) {
+        if (wave.isProjectile) {
+            Game.em.addEntity(Projectile.class, wave.tag);
+            return;
+        }
+        Entity entity = Game.em.addEntity(Mob.class, wave.tag);
+        if (wave.regions.length == 0)
+            return;
+
+        SpawnComponent spawnComponent = Game.em.getMap().getComponent(SpawnComponent.class);
+        SplittableRandom random = Game.rm.get(RandomManager.Stream.SPAWN);
+        String region = wave.regions[random.nextInt(wave.regions.length)];
+        entity.getComponent(TransformComponent.class).setPosition(spawnComponent.sample(region, random));
+    }
+
+    /**
+     * Checks if every wave has been spawned.
+     *
+     * @return true if no mob is queued nor due anymore
+     */
+    public boolean isDone() {
+        if (!backlog.isEmpty())
+            return false;
+        for (Wave wave : waves) {
+            if (wave.remaining > 0)
+                return false;
+        }
+        return true;
+    }
+
+    public int getBacklogSize() {
+        return backlog.size();
+    }
+
+    public long getLastLatency() {
+        return lastLatency;
+    }
+
+    public long getAverageSpawnTime() {
+        return averageSpawnTime;
+    }
+
+    /**
+     * Definition and progress of a wave.
+     */
+    private static class Wave {
+        private final String tag;
+        private final boolean isProjectile;
+        private final int count;
+        private final String[] regions;
+        private final long every;
+        private long nextTick;
+        private int remaining;
+
+        @SuppressWarnings("unchecked")
+        private Wave(Map<String, Object> data) {
+            this.tag = (String) data.get("tag");
+            this.isProjectile = "projectile".equals(data.getOrDefault("entity", "mob"));
+            this.regions = ((List<String>) data.getOrDefault("regions", List.of())).toArray(new String[0]);
+            this.nextTick = ((Number) data.getOrDefault("start", 0)).longValue();
+
+            if (data.containsKey("rate")) {
+                // continuous stream of entities per second, as the smallest waves matching the rate in ticks
+                int rate = ((Number) data.get("rate")).intValue();
+                long every = GameLoop.framerate / gcd(Math.max(1, rate), GameLoop.framerate);
+                this.every = every;
+                this.count = (int) (rate * every / GameLoop.framerate);
+                this.remaining = ((Number) data.getOrDefault("repeat", Integer.MAX_VALUE)).intValue();
+            } else {
+                this.count = ((Number) data.getOrDefault("count", 1)).intValue();
+                this.every = ((Number) data.getOrDefault("every", 0)).longValue();
+                this.remaining = ((Number) data.getOrDefault("repeat", 1)).intValue();
+            }
+        }
+
+        private static int gcd(int a, int b) {
+            return (b == 0) ? a : gcd(b, a % b);
+        }
+    }
+
+    /**
+     * A queued mob of a wave with the tick it was due.
+     */
+    private static class SpawnRequest {
+        private final Wave wave;
+        private final long dueTick;
+
+        private SpawnRequest(Wave wave, long dueTick) {
+            this.wave = wave;
+            this.dueTick = dueTick;
+        }
+    }
+}
@@ -1,9 +1,6 @@
 package suchagame.ecs.system;
 
-import javafx.animation.KeyFrame;
-import javafx.animation.Timeline;
 import javafx.beans.property.SimpleFloatProperty;
-import javafx.util.Duration;
 import suchagame.ecs.component.FlagComponent;
 import suchagame.ecs.component.StatsComponent;
 import suchagame.ecs.entity.Entity;
@@ -11,6 +8,7 @@ import suchagame.ecs.entity.Item;
 import suchagame.ecs.entity.Player;
 import suchagame.ecs.entity.Projectile;
 import suchagame.ui.Game;
+import suchagame.utils.Timer;
 
 import java.util.Map;
 
@@ -19,12 +17,19 @@ import java.util.Map;
  */
 public class StatsSystem extends System {
 
-    // Timeline for the passive regeneration of the stats
-    public static Timeline regenTimeline;
+    // delay between two passive regenerations of the stats in milliseconds of game time
+    private static final long regenDelay = 500;
+    // repeating timer of the regeneration, created with the scheduler of each game
+    private static Timer regenTimer;
+    private static boolean isRegenPaused = false;
 
     public StatsSystem() {
         super();
-        statsRegenerate();
+        regenTimer = new Timer(() -> {
+            regenerate();
+            regenTimer.schedule(regenDelay);
+        });
+        isRegenPaused = false;
     }
 
     /**
@@ -40,9 +45,6 @@ public class StatsSystem extends System {
         for (Map.Entry<String, SimpleFloatProperty> entry : observableStats.entrySet()) {
             switch (entry.getKey()) {
                 case "hp" -> entry.getValue().addListener((observable, oldValue, newValue) -> {
-                    if (entity instanceof Player)
-                        Game.hud.updateStatBar("hp", newValue.floatValue());
-
                     if (newValue.floatValue() <= 0 && stats.isAlive) {
                         if (entity instanceof Player) {
                             Player.setDeathCause("You has been slain by a crowd of slimes!");
@@ -50,11 +52,6 @@ public class StatsSystem extends System {
                         Game.sm.get(GameplaySystem.class).killEntity(entity, true);
                     }
                 });
-                case "mp" -> entry.getValue().addListener((observable, oldValue, newValue) -> {
-                    if (entity instanceof Player) {
-                        Game.hud.updateStatBar("mp", newValue.floatValue());
-                    }
-                });
                 default -> {
                     // Handle other stats if necessary
                 }
@@ -96,20 +93,37 @@ public class StatsSystem extends System {
     }
 
     /**
-     * Sets up the timeline for the passive regeneration of the player's stats.
+     * Starts the passive regeneration of the player's stats on the first tick, unless the regeneration is paused.
+     * The regeneration then runs every regeneration delay of game time.
+     */
+    public static void update() {
+        if (!isRegenPaused && !regenTimer.isPending())
+            regenTimer.schedule(regenDelay);
+    }
+
+    /**
+     * Regenerates the player's stats once.
      */
-    public static void statsRegenerate() {
+    private static void regenerate() {
         StatsComponent statsComponent = Game.em.getPlayer().getComponent(StatsComponent.class);
-        regenTimeline = new Timeline(new KeyFrame(Duration.millis(500), event -> {
-            if (statsComponent.getObservableStat("mp") < statsComponent.getStat("mp_max")) {
-                // Increment the MP stat up to the maximum value or 9 points per regeneration cycle
-                statsComponent.alterObservableStat("mp",
-                        Math.min(Math.abs(statsComponent.getStat("mp_max") - statsComponent.getObservableStat("mp")), 9));
-            }
-        }));
+        if (statsComponent.getObservableStat("mp") < statsComponent.getStat("mp_max")) {
+            // Increment the MP stat up to the maximum value or 9 points per regeneration cycle
+            statsComponent.alterObservableStat("mp",
+                    Math.min(Math.abs(statsComponent.getStat("mp_max") - statsComponent.getObservableStat("mp")), 9));
+        }
+    }
 
-        regenTimeline.setCycleCount(Timeline.INDEFINITE);
-        regenTimeline.play();
+    /**
+     * Pauses or resumes the passive regeneration of the player's stats.
+     *
+     * @param paused true to pause the regeneration
+     */
+    public static void setRegenPaused(boolean paused) {
+        if (paused)
+            regenTimer.stop();
+        else if (isRegenPaused)
+            regenTimer.schedule(regenDelay);
+        isRegenPaused = paused;
     }
 
 
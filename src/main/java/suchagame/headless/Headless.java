@@ -0,0 +1,119 @@
+package suchagame.headless;
+
+import suchagame.ecs.EntityManager;
+import suchagame.ecs.RandomManager;
+import suchagame.ecs.SystemManager;
+import suchagame.ecs.system.GraphicSystem;
+import suchagame.ecs.system.InputSystem;
+import suchagame.ecs.system.SpawnSystem;
+import suchagame.jfr.FlightRecording;
+import suchagame.replay.InputRecording;
+import suchagame.ui.Camera;
+import suchagame.ui.Game;
+import suchagame.utils.Profiler;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Runs the simulation without JavaFX toolkit, stage, canvas nor images (e.g. on a server or in CI):
+ * the entities and the systems are ticked as fast as possible with the input of a scenario,
+ * and the simulation throughput is reported in ticks per second.
+ */
+public class Headless {
+
+    /**
+     * Runs a scenario, usage: headless [--scenario=<name or file>] [--ticks=<count>] [--seed=<seed>] [--jfr=<file>]
+     * @param args command line arguments
+     * @throws IOException if the scenario cannot be loaded
+     */
+    public static void main(String[] args) throws IOException {
+        Map<String, String> parameters = parseParameters(args);
+        Scenario scenario = Scenario.load(parameters.getOrDefault("scenario", "default"));
+        long ticks = Long.parseLong(parameters.getOrDefault("ticks", String.valueOf(scenario.getTicks())));
+        long seed = Long.parseLong(parameters.getOrDefault("seed", String.valueOf(scenario.getSeed())));
+
+        // flight recording of the whole run, dumped at its end
+        if (parameters.containsKey("jfr"))
+            FlightRecording.enable(Path.of(parameters.get("jfr")));
+
+        InputRecording input = scenario.createInput(ticks);
+        init(seed, new InputSystem(input), new SpawnSystem(scenario.getWaves(), scenario.getSpawnBudget()));
+        scenario.initPlayer();
+
+        long start = System.nanoTime();
+        long tickCount = 0;
+        while (tickCount < ticks && Game.isGameRunning()) {
+            tick();
+            tickCount++;
+        }
+        long simulationTime = System.nanoTime() - start;
+        FlightRecording.stop();
+
+        System.out.printf("Simulated %d/%d ticks of %s in %.3f s (%.0f ticks/s), %d entities left%s%n",
+                tickCount, ticks, scenario.getName(),
+                simulationTime / 1e9, tickCount / (simulationTime / 1e9),
+                Game.em.getEntityCount(), Game.isGameRunning() ? "" : ", game over");
+
+        // mean time taken by each system over the last ticks
+        Profiler profiler = Game.sm.getProfiler();
+        StringBuilder profile = new StringBuilder("Mean time per tick:");
+        for (Profiler.Section section : Profiler.Section.values())
+            profile.append(String.format(" %s %.3f ms,", section.getName(), profiler.getHistogram(section).getMean()));
+        System.out.println(profile.substring(0, profile.length() - 1));
+    }
+
+    /**
+     * Initializes the world without display.
+     *
+     * @param seed the seed of the world
+     * @param inputSystem the input system playing back the input
+     * @param spawnSystem the spawn system
+     */
+    public static void init(long seed, InputSystem inputSystem, SpawnSystem spawnSystem) {
+        Game.headless = true;
+        Game.seed = seed;
+        Game.rm = new RandomManager(seed);
+        Game.em = new EntityManager();
+        Game.em.initEntities();
+        Game.sm = new SystemManager(inputSystem, spawnSystem);
+        Game.camera = new Camera();
+        Game.startWithoutWindow();
+    }
+
+    /**
+     * Simulates one tick of the world.
+     */
+    public static void tick() {
+        Profiler profiler = Game.sm.getProfiler();
+        profiler.beginTick();
+        profiler.enter(Profiler.Section.CAMERA);
+        Game.camera.update();
+        profiler.enter(Profiler.Section.OTHER);
+        Game.sm.update();
+        // keep visibility up to date as it is used by the collisions, the animations and the particles
+        profiler.enter(Profiler.Section.GRAPHICS);
+        GraphicSystem.updateVirtualPositions();
+        profiler.endTick(Game.sm.getTick(), Game.em.getEntityCount());
+    }
+
+    /**
+     * Parses the arguments of the form --key=value.
+     *
+     * @param args command line arguments
+     * @return the values by key
+     */
+    static Map<String, String> parseParameters(String[] args) {
+        Map<String, String> parameters = new HashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--") || !arg.contains("=")) {
+                System.err.println("Ignoring argument " + arg);
+                continue;
+            }
+            parameters.put(arg.substring(2, arg.indexOf('=')), arg.substring(arg.indexOf('=') + 1));
+        }
+        return parameters;
+    }
+}
@@ -0,0 +1,163 @@
+package suchagame.headless;
+
+import javafx.scene.input.KeyCode;
+import org.yaml.snakeyaml.Yaml;
+import suchagame.Main;
+import suchagame.ecs.component.FlagComponent;
+import suchagame.ecs.system.InputSystem;
+import suchagame.ecs.system.SpawnSystem;
+import suchagame.replay.InputRecording;
+import suchagame.ui.Game;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Scenario of a headless run: the seed of the world, the waves of mobs (or projectiles) and a scripted input
+ * played in a loop, e.g. a workload to stress the engine.
+ * Scenarios are YAML files, either in config/scenario of the resources (by name) or on the disk (by path).
+ */
+public class Scenario {
+    // keys held by the player circling, one direction after the other clockwise from the right
+    private static final KeyCode[][] circleKeys = {
+            {KeyCode.D}, {KeyCode.D, KeyCode.S}, {KeyCode.S}, {KeyCode.S, KeyCode.Q},
+            {KeyCode.Q}, {KeyCode.Q, KeyCode.Z}, {KeyCode.Z}, {KeyCode.Z, KeyCode.D}
+    };
+
+    private final String name;
+    private final long seed;
+    private final long ticks;
+    // ticks run before the measured ones by the benchmarks (e.g. while the mobs spawn and the code warms up)
+    private final long warmup;
+    private final List<Map<String, Object>> waves;
+    // mobs spawned per tick at most, the same on every machine
+    private final int spawnBudget;
+    // flags of the player (e.g. invincibility, so that a stress scenario is not cut short)
+    private final Map<String, Boolean> playerFlags;
+    // input mask and number of ticks of each step of the scripted input
+    private final int[] stepMasks;
+    private final int[] stepTicks;
+
+    /**
+     * Constructs a scenario from its YAML data.
+     *
+     * @param name the name of the scenario
+     * @param data the fields of the scenario
+     */
+    @SuppressWarnings("unchecked")
+    private Scenario(String name, Map<String, Object> data) {
+        this.name = name;
+        this.seed = ((Number) data.getOrDefault("seed", 0)).longValue();
+        this.ticks = ((Number) data.getOrDefault("ticks", 3600)).longValue();
+        this.warmup = ((Number) data.getOrDefault("warmup", 0)).longValue();
+        this.waves = (List<Map<String, Object>>) data.getOrDefault("waves", List.of());
+        this.spawnBudget = ((Number) data.getOrDefault("budget", SpawnSystem.defaultTickBudget)).intValue();
+        this.playerFlags = (Map<String, Boolean>) data.getOrDefault("player", Map.of());
+
+        List<Integer> masks = new ArrayList<>();
+        List<Integer> durations = new ArrayList<>();
+        for (Map<String, Object> step : (List<Map<String, Object>>) data.getOrDefault("input", List.of())) {
+            int mask = 0;
+            for (String key : (List<String>) step.getOrDefault("keys", List.of()))
+                mask |= InputSystem.getKeyMask(KeyCode.valueOf(key));
+            if (step.containsKey("circle")) {
+                // a whole turn in the given ticks, holding the keys of the step along the way
+                int period = ((Number) step.get("circle")).intValue();
+                for (KeyCode[] keys : circleKeys) {
+                    int circleMask = mask;
+                    for (KeyCode key : keys)
+                        circleMask |= InputSystem.getKeyMask(key);
+                    masks.add(circleMask);
+                    durations.add(Math.max(1, period / circleKeys.length));
+                }
+            } else {
+                masks.add(mask);
+                durations.add(((Number) step.getOrDefault("ticks", 1)).intValue());
+            }
+        }
+        this.stepMasks = masks.stream().mapToInt(Integer::intValue).toArray();
+        this.stepTicks = durations.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    /**
+     * Loads a scenario from a file if the path exists, or from config/scenario of the resources by name.
+     *
+     * @param nameOrPath the name of the scenario (e.g. "default") or the path of its file
+     * @return the scenario
+     * @throws IOException if the scenario cannot be read
+     */
+    @SuppressWarnings("unchecked")
+    public static Scenario load(String nameOrPath) throws IOException {
+        Path path = Path.of(nameOrPath);
+        boolean isFile = Files.isRegularFile(path);
+        try (InputStream inputStream = isFile ? Files.newInputStream(path) :
+                Main.class.getResourceAsStream("config/scenario/" + nameOrPath + ".yml")) {
+            if (inputStream == null)
+                throw new IOException("No scenario named " + nameOrPath);
+            Map<String, Map<String, Object>> data = new Yaml().load(inputStream);
+            String name = isFile ? path.getFileName().toString() : nameOrPath;
+            return new Scenario(name, data.get("scenario"));
+        }
+    }
+
+    /**
+     * Creates the input stream of the given number of ticks, looping over the steps of the scripted input.
+     *
+     * @param tickCount the number of ticks
+     * @return the input stream, with the seed of the scenario
+     */
+    public InputRecording createInput(long tickCount) {
+        InputRecording recording = new InputRecording(seed);
+        int step = 0, stepTick = 0;
+        for (long tick = 0; tick < tickCount; tick++) {
+            if (stepMasks.length == 0) {
+                recording.record(0);
+                continue;
+            }
+            recording.record(stepMasks[step]);
+            if (++stepTick >= stepTicks[step]) {
+                stepTick = 0;
+                step = (step + 1) % stepMasks.length;
+            }
+        }
+        return recording;
+    }
+
+    /**
+     * Sets the flags of the scenario on the player of the world.
+     */
+    public void initPlayer() {
+        FlagComponent flagComponent = Game.em.getPlayer().getComponent(FlagComponent.class);
+        for (Map.Entry<String, Boolean> flag : playerFlags.entrySet())
+            flagComponent.setFlag(flag.getKey(), flag.getValue());
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    public long getTicks() {
+        return ticks;
+    }
+
+    public long getWarmup() {
+        return warmup;
+    }
+
+    public List<Map<String, Object>> getWaves() {
+        return waves;
+    }
+
+    public int getSpawnBudget() {
+        return spawnBudget;
+    }
+}
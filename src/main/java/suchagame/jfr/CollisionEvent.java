@@ -0,0 +1,27 @@
+package suchagame.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Collision checks of a tick.
+ */
+@Name("suchagame.Collision")
+@Label("Collisions")
+@Category({"Such A Game", "ECS"})
+@Description("Number of collision checks and of colliding pairs of entities during a tick")
+public class CollisionEvent extends Event {
+    @Label("Tick")
+    public long tick;
+
+    @Label("Check Count")
+    @Description("Number of moves checked against the entities and the map")
+    public int checkCount;
+
+    @Label("Pair Count")
+    @Description("Number of pairs of entities whose hit boxes intersect")
+    public int pairCount;
+}
@@ -0,0 +1,27 @@
+package suchagame.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Entity added to or removed from the entity manager.
+ */
+@Name("suchagame.Entity")
+@Label("Entity Spawn/Destroy")
+@Category({"Such A Game", "ECS"})
+@Description("Entity added to or removed from the world")
+public class EntityEvent extends Event {
+    @Label("Spawned")
+    @Description("True when the entity is added, false when it is removed")
+    public boolean spawned;
+
+    @Label("Entity Class")
+    public String entityClass;
+
+    @Label("Entity Count")
+    @Description("Number of entities after the change")
+    public int entityCount;
+}
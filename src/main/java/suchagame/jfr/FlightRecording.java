@@ -0,0 +1,118 @@
+package suchagame.jfr;
+
+import jdk.jfr.Configuration;
+import jdk.jfr.Event;
+import jdk.jfr.Recording;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Java Flight Recorder session of the game, recording the events of the game (ticks, systems, entities, models,
+ * collisions and map) along the events of the JVM (e.g. GC pauses, allocations), to correlate them.
+ * The recording is enabled with --jfr=<file>: it starts with the game and is dumped to the file when stopped
+ * (F7 in game, or at the end of the session), and F7 starts a new one. Each dump has its own file, the next
+ * ones being numbered after the first one (e.g. session.jfr, session-2.jfr, session-3.jfr).
+ * The events cost close to nothing while no recording runs.
+ */
+public class FlightRecording {
+    // events of the game, enabled in the recording
+    private static final List<Class<? extends Event>> events = List.of(
+            TickEvent.class, SystemEvent.class, EntityEvent.class, ModelEvent.class, CollisionEvent.class, MapEvent.class
+    );
+    // age of the oldest events kept, so that a long session does not fill the disk
+    private static final Duration maxAge = Duration.ofMinutes(10);
+
+    // file the recording is dumped to, null if flight recording is not enabled
+    private static Path path;
+    private static Recording recording;
+    // number of recordings dumped so far
+    private static int dumpCount = 0;
+
+    /**
+     * Enables flight recording and starts a recording.
+     *
+     * @param path the file the recordings are dumped to
+     */
+    public static synchronized void enable(Path path) {
+        FlightRecording.path = path;
+        start();
+    }
+
+    public static synchronized boolean isEnabled() {
+        return path != null;
+    }
+
+    public static synchronized boolean isRecording() {
+        return recording != null;
+    }
+
+    /**
+     * Starts a recording with the default settings of the JVM and the events of the game.
+     */
+    public static synchronized void start() {
+        if (path == null || recording != null)
+            return;
+        try {
+            recording = new Recording(Configuration.getConfiguration("default"));
+        } catch (IOException | ParseException e) {
+            e.printStackTrace();
+            recording = new Recording();
+        }
+        recording.setName("suchagame");
+        recording.setMaxAge(maxAge);
+        for (Class<? extends Event> event : events)
+            recording.enable(event);
+        recording.start();
+        System.out.println("Flight recording started");
+    }
+
+    /**
+     * Stops the recording and dumps it to the file, nothing is done if no recording runs.
+     */
+    public static synchronized void stop() {
+        if (recording == null)
+            return;
+        try {
+            recording.stop();
+            Path dumpPath = getDumpPath(++dumpCount);
+            recording.dump(dumpPath);
+            System.out.println("Flight recording dumped to " + dumpPath.toAbsolutePath());
+        } catch (IOException e) {
+            e.printStackTrace();
+        } finally {
+            recording.close();
+            recording = null;
+        }
+    }
+
+    /**
+     * Returns the file of a dump: the given file for the first one, numbered before the extension for the next ones.
+     *
+     * @param dump the number of the dump, from 1
+     * @return the file of the dump
+     */
+    private static Path getDumpPath(int dump) {
+        if (dump == 1)
+            return path;
+        String fileName = path.getFileName().toString();
+        int extension = fileName.lastIndexOf('.');
+        String numbered = (extension > 0)
+                ? fileName.substring(0, extension) + "-" + dump + fileName.substring(extension)
+                : fileName + "-" + dump;
+        return path.resolveSibling(numbered);
+    }
+
+    /**
+     * Stops and dumps the recording if one runs, starts a new one otherwise (e.g. on a key press).
+     */
+    public static synchronized void toggle() {
+        if (recording != null)
+            stop();
+        else
+            start();
+    }
+}
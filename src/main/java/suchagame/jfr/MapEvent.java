@@ -0,0 +1,25 @@
+package suchagame.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Loading of the layers of the map.
+ */
+@Name("suchagame.Map")
+@Label("Map Loading")
+@Category({"Such A Game", "World"})
+@Description("Parsing of the layers of the map and building of the collision layer")
+public class MapEvent extends Event {
+    @Label("Layer Count")
+    public int layerCount;
+
+    @Label("Rows")
+    public int rows;
+
+    @Label("Columns")
+    public int columns;
+}
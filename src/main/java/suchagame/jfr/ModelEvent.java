@@ -0,0 +1,25 @@
+package suchagame.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Instantiation of an entity and its components from its model.
+ */
+@Name("suchagame.Model")
+@Label("Model Instantiation")
+@Category({"Such A Game", "ECS"})
+@Description("Reflective instantiation of an entity and its components from the YAML model")
+public class ModelEvent extends Event {
+    @Label("Entity Class")
+    public String entityClass;
+
+    @Label("Tag")
+    public String tag;
+
+    @Label("Component Count")
+    public int componentCount;
+}
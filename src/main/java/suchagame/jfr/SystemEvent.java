@@ -0,0 +1,27 @@
+package suchagame.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+/**
+ * Time taken by a system during a tick, as measured by the profiler of the simulation.
+ */
+@Name("suchagame.System")
+@Label("System")
+@Category({"Such A Game", "ECS"})
+@Description("Time taken by a system (i.e. a section of the profiler) during a tick")
+public class SystemEvent extends Event {
+    @Label("System")
+    public String system;
+
+    @Label("Tick")
+    public long tick;
+
+    @Label("Time")
+    @Timespan(Timespan.NANOSECONDS)
+    public long time;
+}
@@ -0,0 +1,22 @@
+package suchagame.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Tick of the simulation, from the start of the systems to the publication of the snapshot.
+ */
+@Name("suchagame.Tick")
+@Label("Tick")
+@Category({"Such A Game", "ECS"})
+@Description("Update of the systems and rendering of the snapshot for one tick of the simulation")
+public class TickEvent extends Event {
+    @Label("Tick")
+    public long tick;
+
+    @Label("Entity Count")
+    public int entityCount;
+}
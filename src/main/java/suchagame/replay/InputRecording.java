@@ -0,0 +1,199 @@
+package suchagame.replay;
+
+import suchagame.ecs.system.InputSystem.Command;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Per-tick input stream of a play session, stored with the seed of the session.
+ * Each tick is described by an input mask (see InputSystem) and consecutive identical masks
+ * are run-length encoded, thus a recording of an idle player is only a few bytes long.
+ * The gameplay commands that are not keys of the mask (e.g. the purchases in the NPC menu) are stored
+ * apart with the tick they were applied on.
+ */
+public class InputRecording {
+    private static final int MAGIC = 0x53474952; // "SGIR"
+    private static final short VERSION = 2;
+
+    private final long seed;
+
+    // run-length encoded masks: runMasks[i] is repeated runLengths[i] times
+    private final List<Integer> runMasks = new ArrayList<>();
+    private final List<Integer> runLengths = new ArrayList<>();
+    private int tickCount;
+
+    // commands with the tick they were applied on and their argument, in order
+    private final List<Integer> commandTicks = new ArrayList<>();
+    private final List<Command> commands = new ArrayList<>();
+    private final List<String> commandArguments = new ArrayList<>();
+
+    // playback cursor
+    private int runIndex;
+    private int runOffset;
+    private int playedTicks;
+    private int commandIndex;
+
+    /**
+     * Creates an empty recording.
+     * @param seed the seed of the recorded session
+     */
+    public InputRecording(long seed) {
+        this.seed = seed;
+    }
+
+    /**
+     * Appends the input mask of a tick to the recording.
+     * @param mask the input mask of the tick
+     */
+    public void record(int mask) {
+        int last = runMasks.size() - 1;
+        if (last >= 0 && runMasks.get(last) == mask) {
+            runLengths.set(last, runLengths.get(last) + 1);
+        } else {
+            runMasks.add(mask);
+            runLengths.add(1);
+        }
+        tickCount++;
+    }
+
+    /**
+     * Appends a command applied during the last recorded tick to the recording.
+     * @param command the command
+     * @param argument the argument of the command (e.g. the tag of the item bought), empty if none
+     */
+    public void recordCommand(Command command, String argument) {
+        commandTicks.add(tickCount - 1);
+        commands.add(command);
+        commandArguments.add(argument);
+    }
+
+    /**
+     * Checks if the playback cursor has not reached the end of the recording.
+     * @return true if there is at least one tick left to play
+     */
+    public boolean hasNextTick() {
+        return runIndex < runMasks.size();
+    }
+
+    /**
+     * Returns the input mask of the next tick and moves the playback cursor.
+     * @return the input mask of the next tick
+     */
+    public int nextTick() {
+        int mask = runMasks.get(runIndex);
+        if (++runOffset == runLengths.get(runIndex)) {
+            runIndex++;
+            runOffset = 0;
+        }
+        playedTicks++;
+        return mask;
+    }
+
+    /**
+     * Checks if a command was applied during the last played tick and not played yet.
+     * @return true if there is a command left to play for the last played tick
+     */
+    public boolean hasNextCommand() {
+        return commandIndex < commands.size() && commandTicks.get(commandIndex) == playedTicks - 1;
+    }
+
+    /**
+     * Returns the next command of the last played tick, its argument is given by getCommandArgument.
+     * @return the command
+     */
+    public Command nextCommand() {
+        return commands.get(commandIndex++);
+    }
+
+    /**
+     * Returns the argument of the command returned last by nextCommand.
+     * @return the argument of the command, empty if none
+     */
+    public String getCommandArgument() {
+        return commandArguments.get(commandIndex - 1);
+    }
+
+    /**
+     * Saves the recording into a binary file.
+     * @param path the path of the file
+     * @throws IOException if the file cannot be written
+     */
+    public void save(Path path) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path)))) {
+            out.writeInt(MAGIC);
+            out.writeShort(VERSION);
+            out.writeLong(seed);
+            out.writeInt(tickCount);
+            out.writeInt(runMasks.size());
+            for (int i = 0; i < runMasks.size(); i++) {
+                out.writeShort(runMasks.get(i));
+                writeVarInt(out, runLengths.get(i));
+            }
+            out.writeInt(commands.size());
+            for (int i = 0; i < commands.size(); i++) {
+                writeVarInt(out, commandTicks.get(i));
+                out.writeByte(commands.get(i).ordinal());
+                out.writeUTF(commandArguments.get(i));
+            }
+        }
+    }
+
+    /**
+     * Loads a recording from a binary file.
+     * @param path the path of the file
+     * @return the loaded recording with its playback cursor at the first tick
+     * @throws IOException if the file cannot be read or is not a recording
+     */
+    public static InputRecording load(Path path) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+            if (in.readInt() != MAGIC || in.readShort() != VERSION) {
+                throw new IOException("Not an input recording: " + path);
+            }
+            InputRecording recording = new InputRecording(in.readLong());
+            int tickCount = in.readInt();
+            int runCount = in.readInt();
+            for (int i = 0; i < runCount; i++) {
+                recording.runMasks.add(in.readUnsignedShort());
+                recording.runLengths.add(readVarInt(in));
+            }
+            int commandCount = in.readInt();
+            for (int i = 0; i < commandCount; i++) {
+                recording.commandTicks.add(readVarInt(in));
+                recording.commands.add(Command.values()[in.readUnsignedByte()]);
+                recording.commandArguments.add(in.readUTF());
+            }
+            recording.tickCount = tickCount;
+            return recording;
+        }
+    }
+
+    private static void writeVarInt(DataOutputStream out, int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            out.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte(value);
+    }
+
+    private static int readVarInt(DataInputStream in) throws IOException {
+        int value = 0;
+        for (int shift = 0; ; shift += 7) {
+            int b = in.readUnsignedByte();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0)
+                return value;
+        }
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    public int getTickCount() {
+        return tickCount;
+    }
+}
@@ -0,0 +1,43 @@
+package suchagame.replay;
+
+import suchagame.ecs.system.InputSystem;
+import suchagame.ecs.system.SpawnSystem;
+import suchagame.headless.Headless;
+import suchagame.ui.Game;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * Replays a recorded session through the systems as fast as possible without any window nor rendering,
+ * and reports the simulation throughput in ticks per second.
+ */
+public class Replay {
+
+    /**
+     * Replays the recording given as first argument.
+     * @param args command line arguments
+     * @throws IOException if the recording cannot be loaded
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.err.println("Usage: replay <recording>");
+            System.exit(1);
+        }
+        InputRecording recording = InputRecording.load(Path.of(args[0]));
+        // the world is simulated headless, with the seed of the recording
+        Headless.init(recording.getSeed(), new InputSystem(recording), new SpawnSystem());
+
+        long start = System.nanoTime();
+        int tickCount = 0;
+        while (recording.hasNextTick() && Game.isGameRunning()) {
+            Headless.tick();
+            tickCount++;
+        }
+        long simulationTime = System.nanoTime() - start;
+
+        System.out.printf("Replayed %d/%d ticks in %.3f s (%.0f ticks/s)%n",
+                tickCount, recording.getTickCount(),
+                simulationTime / 1e9, tickCount / (simulationTime / 1e9));
+    }
+}
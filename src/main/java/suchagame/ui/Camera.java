@@ -1,21 +1,21 @@
 package suchagame.ui;
 
 import javafx.geometry.BoundingBox;
-import javafx.scene.canvas.GraphicsContext;
-import javafx.scene.image.Image;
-import javafx.util.Pair;
 import suchagame.ecs.component.LayersComponent;
 import suchagame.ecs.component.TransformComponent;
 import suchagame.ecs.entity.MapEntity;
-import suchagame.utils.Utils;
 import suchagame.utils.Vector2f;
 
-import java.util.HashMap;
+import java.util.Arrays;
 import java.util.List;
-import java.util.Map;
 
 /**
  * Represents the camera used to control the viewport and rendering of the game.
+ * The map layers are composited once into chunks of tiles at their native resolution,
+ * thus rendering the map only copies the rows of the few visible chunks into the frame of the snapshot,
+ * which is rendered at native resolution and upscaled once to the canvas (@see RenderSnapshot).
+ * The camera zooms by discrete levels, and the chunks visible at the next level out are built
+ * in the background ahead of the zoom (@see ChunkCache).
  */
 public class Camera {
     public static float scale = 5f;
@@ -23,19 +23,41 @@ public class Camera {
     public static int relativeHeight = (int) (Game.height / Camera.scale);
 
     public static BoundingBox viewport = new BoundingBox(0, 0, relativeWidth, relativeHeight);
-    private final Map<Integer, Pair<Image, int[]>> tileSetsSpriteSheet = new HashMap<>();
-    private int tileCountRows = (int) Math.ceil((double) relativeHeight / MapEntity.defaultTileSize);
-    private int tileCountCols = (int) Math.ceil((double) relativeWidth / MapEntity.defaultTileSize);
-    private int tileSize = Math.max(Game.width / tileCountCols, Game.height / tileCountRows);
+    // size of a chunk of the map in tiles
+    private static final int chunkSize = 8;
+    // memory budget of the cached chunks in bytes, enough for the viewport at the lowest zoom level
+    private static final long chunkCacheBudget = 16L << 20;
+
+    // scales the camera zooms by, and the scroll accumulated towards the next level
+    private static final float[] zoomLevels = {1f, 1.5f, 2f, 3f, 4f, 5f, 6f, 7f};
+    private static int zoomLevel = 5;
+    private float zoomDelta = 0f;
+
+    // regions of the tile sets of each layer in the texture atlas
+    private final TextureAtlas.Region[] tileSets = new TextureAtlas.Region[MapEntity.layersCount];
+    // composited layers of the chunks as ARGB pixels, by index (row * chunkCols + col)
+    private final int chunkRows, chunkCols;
+    private final ChunkCache chunks;
+    // chunks of the row of chunks being copied into the frame
+    private final int[][] rowChunks;
 
     private final Vector2f position = new Vector2f(0f, 0f);
-    private final Vector2f offsetInTiles = new Vector2f(0f, 0f);
 
     /**
      * Initializes the Camera by loading the tile sets and setting the initial free space bounds.
      */
     public Camera() {
         this.loadTileSets();
+        this.chunkRows = (MapEntity.globalTileCountRows + chunkSize - 1) / chunkSize;
+        this.chunkCols = (MapEntity.globalTileCountCols + chunkSize - 1) / chunkSize;
+        this.rowChunks = new int[chunkCols][];
+        this.chunks = new ChunkCache(
+                chunkRows * chunkCols, chunkCacheBudget,
+                chunkIndex -> buildChunk(chunkIndex / chunkCols, chunkIndex % chunkCols)
+        );
+        Game.em.getMap().getComponent(LayersComponent.class).addTileListener(
+                (layerID, y, x) -> this.chunks.invalidate((y / chunkSize) * chunkCols + x / chunkSize)
+        );
         Game.freeSpace = new BoundingBox(
                 (float) relativeWidth / 2,
                 (float) relativeHeight / 2,
@@ -49,19 +71,82 @@ public class Camera {
      */
     private void loadTileSets() {
         for (int layerID = 0; layerID < MapEntity.layersCount; layerID++) {
-            Image spriteSheet = new Image(Utils.getPathResource(Game.class, "images/map_layer_" + (layerID + 1) + ".png"));
-            int spriteSheetRows = (int) (spriteSheet.getHeight() / MapEntity.defaultTileSize);
-            int spriteSheetCols = (int) (spriteSheet.getWidth() / MapEntity.defaultTileSize);
-            tileSetsSpriteSheet.put(layerID, new Pair<>(spriteSheet, new int[]{spriteSheetRows, spriteSheetCols}));
+            tileSets[layerID] = TextureAtlas.getInstance().getRegion("map_layer_" + (layerID + 1) + ".png");
         }
     }
 
+    /**
+     * Composites the layers of the tiles of a chunk into a single image.
+     * It may run on the background thread of the chunk cache.
+     *
+     * @param chunkRow the row of the chunk
+     * @param chunkCol the column of the chunk
+     * @return the pixels of the chunk at native resolution
+     */
+    private int[] buildChunk(int chunkRow, int chunkCol) {
+        int tileSize = MapEntity.defaultTileSize;
+        int minY = chunkRow * chunkSize;
+        int minX = chunkCol * chunkSize;
+        int rows = Math.min(chunkSize, MapEntity.globalTileCountRows - minY);
+        int cols = Math.min(chunkSize, MapEntity.globalTileCountCols - minX);
+        int width = cols * tileSize;
+        int height = rows * tileSize;
+
+        int[] pixels = new int[width * height];
+        List<int[][]> layers = Game.em.getMap().getComponent(LayersComponent.class).getLayers();
+        for (int layerID = 0; layerID < MapEntity.layersCount; layerID++) {
+            int[][] layer = layers.get(layerID);
+            TextureAtlas.Region tileSet = tileSets[layerID];
+            int[] texture = TextureAtlas.getInstance().getPixels(tileSet.getTextureID());
+            int textureWidth = (int) tileSet.getTexture().getWidth();
+            int tileSetCols = tileSet.getWidth() / tileSize;
+
+            for (int i = 0; i < rows; i++) {
+                for (int j = 0; j < cols; j++) {
+                    int tileID = layer[minY + i][minX + j];
+                    int sourceX = tileSet.getX() + (tileID % tileSetCols) * tileSize;
+                    int sourceY = tileSet.getY() + (tileID / tileSetCols) * tileSize;
+                    for (int y = 0; y < tileSize; y++) {
+                        int offset = (i * tileSize + y) * width + j * tileSize;
+                        int sourceOffset = (sourceY + y) * textureWidth + sourceX;
+                        for (int x = 0; x < tileSize; x++)
+                            pixels[offset + x] = blend(texture[sourceOffset + x], pixels[offset + x]);
+                    }
+                }
+            }
+        }
+        return pixels;
+    }
+
+    /**
+     * Blends a non-premultiplied ARGB pixel over another one.
+     *
+     * @param source      the pixel drawn on top
+     * @param destination the pixel underneath
+     * @return the blended pixel
+     */
+    static int blend(int source, int destination) {
+        int sourceAlpha = source >>> 24;
+        if (sourceAlpha == 255)
+            return source;
+        if (sourceAlpha == 0)
+            return destination;
+
+        int destinationAlpha = (destination >>> 24) * (255 - sourceAlpha) / 255;
+        int alpha = sourceAlpha + destinationAlpha;
+        int blended = alpha << 24;
+        for (int shift = 0; shift < 24; shift += 8) {
+            int channel = (((source >> shift) & 0xff) * sourceAlpha + ((destination >> shift) & 0xff) * destinationAlpha) / alpha;
+            blended |= channel << shift;
+        }
+        return blended;
+    }
+
     /**
      * Updates the camera position based on the player's position and updates the viewport bounds.
      */
     public void update() {
         Vector2f playerPosition = Game.em.getPlayer().getComponent(TransformComponent.class).getPosition();
-        this.offsetInTiles.set(0f, 0f);
 
         // Update X position and offset
         if (Game.freeSpace.getMinX() > playerPosition.getX())
@@ -69,9 +154,7 @@ public class Camera {
         else if (Game.freeSpace.getMaxX() < playerPosition.getX())
             this.position.setX((float) Game.freeSpace.getWidth());
         else {
-            float offsetX = relativeWidth;
-            this.position.setX(playerPosition.getX() - offsetX / 2f);
-            this.offsetInTiles.setX((playerPosition.getX() - offsetX / 2f) % MapEntity.defaultTileSize * scale);
+            this.position.setX(playerPosition.getX() - relativeWidth / 2f);
         }
 
         // Update Y position and offset
@@ -80,9 +163,7 @@ public class Camera {
         else if (Game.freeSpace.getMaxY() < playerPosition.getY())
             this.position.setY((float) Game.freeSpace.getHeight());
         else {
-            float offsetY = relativeHeight;
-            this.position.setY(playerPosition.getY() - offsetY / 2f);
-            this.offsetInTiles.setY((playerPosition.getY() - offsetY / 2f) % MapEntity.defaultTileSize * scale);
+            this.position.setY(playerPosition.getY() - relativeHeight / 2f);
         }
 
         // Update viewport bounds
@@ -95,54 +176,112 @@ public class Camera {
     }
 
     /**
-     * Renders the map layers within the camera's viewport.
+     * Renders the visible part of the map at native resolution into the frame of the snapshot.
+     * The frame starts at the pixel of the map under the top left corner of the viewport and is one pixel
+     * larger than the viewport, the remaining fraction being applied when the frame is upscaled.
      *
-     * @param gc The GraphicsContext used for rendering.
+     * @param snapshot the snapshot drawn by the application thread
      */
-    @SuppressWarnings("IntegerDivisionInFloatingPointContext")
-    public void render(GraphicsContext gc) {
-        update();
-
-        int[] positionInTiles = new int[]{
-                (int) (this.position.getX() / MapEntity.defaultTileSize),
-                (int) (this.position.getY() / MapEntity.defaultTileSize)
-        };
-        int boundsRows = (positionInTiles[1] + tileCountRows) >= MapEntity.globalTileCountRows ?
-                tileCountRows : tileCountRows + 1;
-
-        int boundsCols = (positionInTiles[0] + tileCountCols) >= MapEntity.globalTileCountCols ?
-                tileCountCols : tileCountCols + 1;
+    public void snapshot(RenderSnapshot snapshot) {
+        int frameX = (int) Math.floor(this.position.getX());
+        int frameY = (int) Math.floor(this.position.getY());
+        int width = (int) Math.ceil(Game.width / Camera.scale) + 1;
+        int height = (int) Math.ceil(Game.height / Camera.scale) + 1;
+        snapshot.setFrame(
+                width, height,
+                (frameX - this.position.getX()) * Camera.scale, (frameY - this.position.getY()) * Camera.scale,
+                Camera.scale
+        );
+        snapshot.setOrigin(this.position.getX(), this.position.getY());
 
-        List<int[][]> layers = Game.em.getMap().getComponent(LayersComponent.class).getLayers();
-        for (int layerID = 0; layerID < MapEntity.layersCount; layerID++) {
-            int[][] layer = layers.get(layerID);
+        int[] frame = snapshot.getFrame();
+        int chunkPixels = chunkSize * MapEntity.defaultTileSize;
+        int mapWidth = MapEntity.globalTileCountCols * MapEntity.defaultTileSize;
+        int mapHeight = MapEntity.globalTileCountRows * MapEntity.defaultTileSize;
+        int rowChunksRow = -1;
+        for (int y = 0; y < height; y++) {
+            int mapY = frameY + y;
+            int offset = y * width;
+            Arrays.fill(frame, offset, offset + width, 0);
+            if (mapY < 0 || mapY >= mapHeight)
+                continue;
+            // the chunks are looked up once per row of chunks rather than once per row of pixels
+            if (mapY / chunkPixels != rowChunksRow) {
+                rowChunksRow = mapY / chunkPixels;
+                Arrays.fill(rowChunks, null);
+            }
 
-            for (int y = positionInTiles[1], i = 0; i < boundsRows; y++, i++) {
-                for (int x = positionInTiles[0], j = 0; j < boundsCols; x++, j++) {
-                    gc.drawImage(
-                            tileSetsSpriteSheet.get(layerID).getKey(),
-                            (layer[y][x] % tileSetsSpriteSheet.get(layerID).getValue()[1]) * MapEntity.defaultTileSize,
-                            (layer[y][x] / tileSetsSpriteSheet.get(layerID).getValue()[1]) * MapEntity.defaultTileSize,
-                            MapEntity.defaultTileSize,
-                            MapEntity.defaultTileSize,
-                            (j * tileSize) - this.offsetInTiles.getX(),
-                            (i * tileSize) - this.offsetInTiles.getY(),
-                            tileSize,
-                            tileSize
-                    );
-                }
+            // copy the row of each chunk overlapping the frame
+            int mapX = Math.max(frameX, 0);
+            int maxX = Math.min(frameX + width, mapWidth);
+            while (mapX < maxX) {
+                int chunkCol = mapX / chunkPixels;
+                if (rowChunks[chunkCol] == null)
+                    rowChunks[chunkCol] = chunks.get(rowChunksRow * chunkCols + chunkCol);
+                int[] chunk = rowChunks[chunkCol];
+                int chunkWidth = Math.min(chunkPixels, mapWidth - chunkCol * chunkPixels);
+                int chunkX = mapX - chunkCol * chunkPixels;
+                int length = Math.min(chunkWidth - chunkX, maxX - mapX);
+                System.arraycopy(
+                        chunk, (mapY % chunkPixels) * chunkWidth + chunkX,
+                        frame, offset + mapX - frameX,
+                        length
+                );
+                mapX += length;
             }
         }
+        prefetchZoomOut(chunkPixels);
+    }
+
+    /**
+     * Requests the chunks visible at the next zoom level out, around the center of the viewport,
+     * so that they are built in the background before the player zooms out.
+     *
+     * @param chunkPixels the size of a chunk in pixels of the map
+     */
+    private void prefetchZoomOut(int chunkPixels) {
+        if (zoomLevel == 0)
+            return;
+        float zoomOutScale = zoomLevels[zoomLevel - 1];
+        float centerX = this.position.getX() + Game.width / Camera.scale / 2;
+        float centerY = this.position.getY() + Game.height / Camera.scale / 2;
+        float halfWidth = Game.width / zoomOutScale / 2, halfHeight = Game.height / zoomOutScale / 2;
+        int minCol = Math.max(0, (int) ((centerX - halfWidth) / chunkPixels));
+        int maxCol = Math.min(chunkCols - 1, (int) ((centerX + halfWidth) / chunkPixels));
+        int minRow = Math.max(0, (int) ((centerY - halfHeight) / chunkPixels));
+        int maxRow = Math.min(chunkRows - 1, (int) ((centerY + halfHeight) / chunkPixels));
+        for (int row = minRow; row <= maxRow; row++) {
+            for (int col = minCol; col <= maxCol; col++)
+                chunks.prefetch(row * chunkCols + col);
+        }
     }
 
     /**
      * Alters the scale of the camera by the given delta value.
-     * The scale change is limited between 1f and 7f.
+     * The scroll is accumulated and the scale moves to the next zoom level (between 1f and 7f)
+     * once it reaches a whole step, thus the frame only takes a few distinct sizes.
      *
      * @param delta The amount to change the scale by.
      */
     public void alterScale(float delta) {
-        Camera.scale = (delta > 0f) ? Math.min(Camera.scale + delta, 7f) : Math.max(Camera.scale + delta, 1f);
+        zoomDelta += delta;
+        int level = zoomLevel;
+        while (zoomDelta >= 1f && level < zoomLevels.length - 1) {
+            zoomDelta -= 1f;
+            level++;
+        }
+        while (zoomDelta <= -1f && level > 0) {
+            zoomDelta += 1f;
+            level--;
+        }
+        // scrolling further than the first or last level is not accumulated
+        if ((level == 0 && zoomDelta < 0f) || (level == zoomLevels.length - 1 && zoomDelta > 0f))
+            zoomDelta = 0f;
+        if (level == zoomLevel)
+            return;
+
+        zoomLevel = level;
+        Camera.scale = zoomLevels[level];
         Camera.relativeWidth = (int) (Game.width / Camera.scale);
         Camera.relativeHeight = (int) (Game.height / Camera.scale);
         Game.freeSpace = new BoundingBox(
@@ -151,8 +290,5 @@ public class Camera {
                 Game.width - relativeWidth,
                 Game.height - relativeHeight
         );
-        this.tileCountRows = (int) Math.ceil((double) relativeHeight / MapEntity.defaultTileSize);
-        this.tileCountCols = (int) Math.ceil((double) relativeWidth / MapEntity.defaultTileSize);
-        this.tileSize = Math.max(Game.width / tileCountCols, Game.height / tileCountRows);
     }
-}
\ No newline at end of file
+}
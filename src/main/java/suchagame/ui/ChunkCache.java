@@ -0,0 +1,139 @@
+package suchagame.ui;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Cache of the chunks of the map composited at native resolution, bounded by a memory budget.
+ * The least recently used chunks are evicted first. Chunks missing when a frame needs them are built
+ * by the simulation, while the chunks about to become visible (e.g. when zooming out) are requested
+ * ahead and built by a background thread.
+ */
+public class ChunkCache {
+    // single background thread shared by the caches, so that a new game does not start another one
+    private static final ExecutorService builder = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "chunk-builder");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final long budget;
+    private final ChunkBuilder chunkBuilder;
+    // chunks by index in access order, with their total size in bytes
+    private final LinkedHashMap<Integer, int[]> chunks = new LinkedHashMap<>(16, 0.75f, true);
+    private long size = 0;
+    // version of each chunk, incremented when it is invalidated so that stale builds are dropped
+    private final int[] versions;
+    // chunks requested to the background thread and not built yet
+    private final Set<Integer> requested = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Function compositing a chunk of the map.
+     */
+    public interface ChunkBuilder {
+        int[] build(int chunkIndex);
+    }
+
+    /**
+     * Constructs an empty cache.
+     *
+     * @param chunkCount the number of chunks of the map
+     * @param budget the maximum size of the cached chunks in bytes
+     * @param chunkBuilder the function compositing a chunk
+     */
+    public ChunkCache(int chunkCount, long budget, ChunkBuilder chunkBuilder) {
+        this.budget = budget;
+        this.chunkBuilder = chunkBuilder;
+        this.versions = new int[chunkCount];
+    }
+
+    /**
+     * Returns the chunk, building it on the calling thread if it is not cached.
+     *
+     * @param chunkIndex the index of the chunk
+     * @return the pixels of the chunk
+     */
+    public int[] get(int chunkIndex) {
+        int version;
+        synchronized (this) {
+            int[] chunk = chunks.get(chunkIndex);
+            if (chunk != null)
+                return chunk;
+            version = versions[chunkIndex];
+        }
+        int[] chunk = chunkBuilder.build(chunkIndex);
+        put(chunkIndex, version, chunk);
+        return chunk;
+    }
+
+    /**
+     * Requests the chunk to be built by the background thread if it is not cached nor requested yet.
+     *
+     * @param chunkIndex the index of the chunk
+     */
+    public void prefetch(int chunkIndex) {
+        int version;
+        synchronized (this) {
+            if (chunks.containsKey(chunkIndex))
+                return;
+            version = versions[chunkIndex];
+        }
+        if (!requested.add(chunkIndex))
+            return;
+        builder.execute(() -> {
+            try {
+                put(chunkIndex, version, chunkBuilder.build(chunkIndex));
+            } finally {
+                requested.remove(chunkIndex);
+            }
+        });
+    }
+
+    /**
+     * Removes the chunk from the cache (e.g. after one of its tiles changed).
+     *
+     * @param chunkIndex the index of the chunk
+     */
+    public synchronized void invalidate(int chunkIndex) {
+        versions[chunkIndex]++;
+        int[] chunk = chunks.remove(chunkIndex);
+        if (chunk != null)
+            size -= chunk.length * 4L;
+    }
+
+    /**
+     * Adds a chunk unless it was invalidated since its build started, then evicts the least recently
+     * used chunks over the budget.
+     *
+     * @param chunkIndex the index of the chunk
+     * @param version the version of the chunk when its build started
+     * @param chunk the pixels of the chunk
+     */
+    private synchronized void put(int chunkIndex, int version, int[] chunk) {
+        if (versions[chunkIndex] != version)
+            return;
+        int[] previous = chunks.put(chunkIndex, chunk);
+        if (previous != null)
+            size -= previous.length * 4L;
+        size += chunk.length * 4L;
+
+        Iterator<Map.Entry<Integer, int[]>> iterator = chunks.entrySet().iterator();
+        while (size > budget && iterator.hasNext()) {
+            Map.Entry<Integer, int[]> eldest = iterator.next();
+            // the chunk just added is the most recent one, it is always kept
+            if (eldest.getKey() == chunkIndex)
+                break;
+            size -= eldest.getValue().length * 4L;
+            iterator.remove();
+        }
+    }
+
+    public synchronized long getSize() {
+        return size;
+    }
+}
@@ -2,14 +2,18 @@ package suchagame.ui;
 
 import javafx.animation.KeyFrame;
 import javafx.animation.Timeline;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
 import javafx.scene.control.Label;
 import javafx.scene.input.KeyCode;
 import javafx.scene.input.KeyEvent;
 import javafx.scene.layout.AnchorPane;
 import javafx.scene.paint.Color;
+import javafx.scene.text.Font;
 import javafx.util.Duration;
-import suchagame.ecs.component.StatsComponent;
-import suchagame.ecs.component.TransformComponent;
+import suchagame.ecs.system.LightSystem;
+import suchagame.utils.FrameTimeHistogram;
+import suchagame.utils.Profiler;
 
 import java.util.HashMap;
 
@@ -17,10 +21,25 @@ import java.util.HashMap;
  * Represents the debug overlay used to display game information during debugging.
  */
 public class Debug {
+    // delay between two refreshes of the labels in milliseconds
+    private static final long refreshPeriod = 250;
+    // size of the bar of a tick of the profile graph, and duration at the top of the graph (two tick budgets)
+    private static final int barWidth = 2;
+    private static final int graphHeight = 200;
+    private static final int legendWidth = 260;
+    private static final float graphDuration = 2000f / GameLoop.framerate;
+    // color of each section of the profile graph, by ordinal of the section
+    private static final Color[] sectionColors = {
+            Color.GRAY, Color.LIGHTBLUE, Color.PLUM, Color.PINK, Color.DODGERBLUE, Color.ORANGERED,
+            Color.GOLD, Color.ORANGE, Color.LIGHTGREEN, Color.MEDIUMSEAGREEN, Color.LIGHTYELLOW
+    };
+
     private final AnchorPane debugView;
     private final Timeline debugLoop;
 
     private final HashMap<String, Label> debugLabels;
+    // stacked bars of the time taken by each system during the last ticks
+    private Canvas profileGraph;
     private boolean debugViewVisible = false;
 
     /**
@@ -32,7 +51,7 @@ public class Debug {
         this.debugView = debugView;
         this.debugLabels = new HashMap<>();
         initDebugView();
-        this.debugLoop = new Timeline(new KeyFrame(Duration.millis(GameLoop.frameDuration * GameLoop.sampleFrameSize), event -> updateDebugLabels()));
+        this.debugLoop = new Timeline(new KeyFrame(Duration.millis(refreshPeriod), event -> updateDebugLabels()));
 
         this.debugLoop.setCycleCount(Timeline.INDEFINITE);
 
@@ -43,7 +62,7 @@ public class Debug {
      * Initializes the debug view by creating and positioning the debug labels.
      */
     private void initDebugView() {
-        String[] debugLabels = {"fps", "entities", "scale", "game mode", "position", "health", "mana"};
+        String[] debugLabels = {"fps", "tick", "entities", "scale", "game mode", "position", "health", "mana", "spawn", "lights", "particles"};
         for (int i = 0; i < debugLabels.length; i++) {
             Label label = initLabel();
             label.setLayoutX(10);
@@ -51,7 +70,12 @@ public class Debug {
             this.debugLabels.put(debugLabels[i], label);
         }
 
+        this.profileGraph = new Canvas(Profiler.window * barWidth + legendWidth, graphHeight);
+        this.profileGraph.setLayoutX(10);
+        this.profileGraph.setLayoutY(10 + 40 * debugLabels.length);
+
         this.debugView.getChildren().addAll(this.debugLabels.values());
+        this.debugView.getChildren().add(this.profileGraph);
     }
 
     /**
@@ -88,16 +112,77 @@ public class Debug {
     }
 
     /**
-     * Updates the debug labels with the latest game information.
+     * Updates the debug labels with the latest game information (i.e. the last snapshot drawn).
      */
     private void updateDebugLabels() {
-        this.debugLabels.get("fps").setText(String.format("FPS: %.2f", GameLoop.fps));
-        this.debugLabels.get("scale").setText("Scale: " + Camera.scale);
-        this.debugLabels.get("entities").setText("Entity Count: " + Game.em.getEntityCount());
-        this.debugLabels.get("position").setText("Player Position: " + Game.em.getPlayer().getComponent(TransformComponent.class).getPosition());
-        this.debugLabels.get("health").setText("Player Health: " + Game.em.getPlayer().getComponent(StatsComponent.class).getObservableStat("hp"));
-        this.debugLabels.get("mana").setText("Player Mana: " + Game.em.getPlayer().getComponent(StatsComponent.class).getObservableStat("mp"));
+        RenderSnapshot snapshot = Game.gameLoop.getSnapshot();
+        if (snapshot == null)
+            return;
+        FrameTimeHistogram frameTimes = Game.gameLoop.getFrameTimes();
+        float meanFrameTime = frameTimes.getMean();
+        this.debugLabels.get("fps").setText(String.format(
+                "FPS: %.1f (frame p50 %.1f / p95 %.1f / p99 %.1f ms, jitter %.2f ms)",
+                (meanFrameTime > 0) ? 1000f / meanFrameTime : 0f,
+                frameTimes.getPercentile(0.5f), frameTimes.getPercentile(0.95f), frameTimes.getPercentile(0.99f),
+                frameTimes.getJitter()
+        ));
+        this.debugLabels.get("tick").setText(String.format("Tick: p99 %.2f ms (budget %.2f ms), draw p99 %.2f ms",
+                snapshot.getTickPercentile(), 1000f / GameLoop.framerate, Game.gameLoop.getDrawTimes().getPercentile(0.99f)));
+        this.debugLabels.get("scale").setText("Scale: " + snapshot.getScale());
+        this.debugLabels.get("entities").setText("Entity Count: " + snapshot.getEntityCount());
+        this.debugLabels.get("position").setText(String.format("Player Position: (%.2f, %.2f)", snapshot.getPlayerX(), snapshot.getPlayerY()));
+        this.debugLabels.get("health").setText("Player Health: " + snapshot.getHp());
+        this.debugLabels.get("mana").setText("Player Mana: " + snapshot.getMp());
         this.debugLabels.get("game mode").setText("Game Mode: " + Game.gameMode.toString().toLowerCase());
+        this.debugLabels.get("spawn").setText(String.format("Spawn Backlog: %d (latency %d ticks, %d us/entity)",
+                snapshot.getSpawnBacklog(), snapshot.getSpawnLatency(), snapshot.getSpawnTime() / 1000));
+        this.debugLabels.get("lights").setText(String.format("Lights: %d (budget %d)", snapshot.getLightCount(), LightSystem.lightBudget));
+        this.debugLabels.get("particles").setText("Particles: " + snapshot.getParticleCount());
+        drawProfileGraph(snapshot);
+    }
+
+    /**
+     * Draws a bar per tick stacking the time taken by each system, oldest on the left, with the tick budget
+     * and the mean and 99th percentile of each system as legend.
+     *
+     * @param snapshot the last snapshot drawn
+     */
+    private void drawProfileGraph(RenderSnapshot snapshot) {
+        GraphicsContext gc = profileGraph.getGraphicsContext2D();
+        Profiler.Section[] sections = Profiler.Section.values();
+        long[] profile = snapshot.getProfile();
+        float pixelsPerNano = graphHeight / (graphDuration * 1e6f);
+
+        gc.clearRect(0, 0, profileGraph.getWidth(), profileGraph.getHeight());
+        gc.setFill(Color.color(0, 0, 0, 0.5));
+        gc.fillRect(0, 0, Profiler.window * barWidth, graphHeight);
+
+        // the newest tick is on the right, the graph fills from the right while the window is not full
+        int offsetX = (Profiler.window - snapshot.getProfileCount()) * barWidth;
+        for (int tick = 0; tick < snapshot.getProfileCount(); tick++) {
+            double y = graphHeight;
+            for (Profiler.Section section : sections) {
+                double height = profile[tick * sections.length + section.ordinal()] * pixelsPerNano;
+                if (height <= 0 || y <= 0)
+                    continue;
+                gc.setFill(sectionColors[section.ordinal()]);
+                gc.fillRect(offsetX + tick * barWidth, Math.max(0, y - height), barWidth, Math.min(y, height));
+                y -= height;
+            }
+        }
+
+        // budget of a tick at the middle of the graph
+        gc.setStroke(Color.RED);
+        gc.strokeLine(0, graphHeight / 2.0, Profiler.window * barWidth, graphHeight / 2.0);
+
+        gc.setFont(Font.font(14));
+        double lineHeight = (double) graphHeight / sections.length;
+        for (Profiler.Section section : sections) {
+            gc.setFill(sectionColors[section.ordinal()]);
+            gc.fillText(String.format("%s %.2f / %.2f ms", section.getName(),
+                            snapshot.getProfileMean(section), snapshot.getProfilePercentile(section)),
+                    Profiler.window * barWidth + 10, lineHeight * (section.ordinal() + 1) - 4);
+        }
     }
 
     /**
@@ -0,0 +1,178 @@
+package suchagame.ui;
+
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.paint.Color;
+
+import java.util.Arrays;
+
+/**
+ * Command buffer of the debug visualisation (hit boxes, cells of the spatial index, paths, contacts).
+ * The systems append commands in map coordinates while the simulation runs a tick, the buffer is then
+ * handed over to the snapshot of the frame and flushed once on the debug canvas, drawing all the commands
+ * of a category as a single path.
+ */
+public class DebugDraw {
+    // toggled by the application thread, read by the simulation thread
+    public static volatile boolean enabled = false;
+
+    // buffer filled by the simulation thread during the tick
+    private static DebugDraw current = new DebugDraw();
+
+    private static final byte rect = 0, line = 1, arrow = 2, point = 3;
+    // size of the arrow heads and of the points on the canvas
+    private static final float markerSize = 6f;
+
+    // commands, a kind and a category each, with 4 floats each (rectangle, segment or point)
+    private byte[] kinds = new byte[256];
+    private byte[] categories = new byte[256];
+    private float[] values = new float[256 * 4];
+    private int size = 0;
+
+    /**
+     * Category of the debug commands, drawn with its own color.
+     */
+    public enum Category {
+        HIT_BOX(Color.LAWNGREEN),
+        GRID_CELL(Color.rgb(80, 160, 255, 0.6)),
+        PATH(Color.GOLD),
+        CONTACT(Color.RED);
+
+        private final Color color;
+
+        Category(Color color) {
+            this.color = color;
+        }
+    }
+
+    /**
+     * Appends a rectangle.
+     *
+     * @param category the category of the rectangle
+     * @param x the x of the rectangle in pixels of the map
+     * @param y the y of the rectangle in pixels of the map
+     * @param width the width of the rectangle in pixels of the map
+     * @param height the height of the rectangle in pixels of the map
+     */
+    public static void rect(Category category, float x, float y, float width, float height) {
+        if (enabled)
+            current.add(rect, category, x, y, width, height);
+    }
+
+    /**
+     * Appends a segment.
+     *
+     * @param category the category of the segment
+     * @param x1 the x of the start in pixels of the map
+     * @param y1 the y of the start in pixels of the map
+     * @param x2 the x of the end in pixels of the map
+     * @param y2 the y of the end in pixels of the map
+     */
+    public static void line(Category category, float x1, float y1, float x2, float y2) {
+        if (enabled)
+            current.add(line, category, x1, y1, x2, y2);
+    }
+
+    /**
+     * Appends an arrow.
+     *
+     * @param category the category of the arrow
+     * @param x1 the x of the tail in pixels of the map
+     * @param y1 the y of the tail in pixels of the map
+     * @param x2 the x of the head in pixels of the map
+     * @param y2 the y of the head in pixels of the map
+     */
+    public static void arrow(Category category, float x1, float y1, float x2, float y2) {
+        if (enabled)
+            current.add(arrow, category, x1, y1, x2, y2);
+    }
+
+    /**
+     * Appends a point, drawn as a cross.
+     *
+     * @param category the category of the point
+     * @param x the x of the point in pixels of the map
+     * @param y the y of the point in pixels of the map
+     */
+    public static void point(Category category, float x, float y) {
+        if (enabled)
+            current.add(point, category, x, y, 0, 0);
+    }
+
+    /**
+     * Hands the commands of the tick over and starts a new buffer.
+     *
+     * @param buffer an unused buffer (e.g. the one of a snapshot already drawn), cleared to become the current one
+     * @return the commands of the tick
+     */
+    public static DebugDraw swap(DebugDraw buffer) {
+        DebugDraw commands = current;
+        buffer.size = 0;
+        current = buffer;
+        return commands;
+    }
+
+    private void add(byte kind, Category category, float a, float b, float c, float d) {
+        if (size == kinds.length) {
+            kinds = Arrays.copyOf(kinds, size * 2);
+            categories = Arrays.copyOf(categories, size * 2);
+            values = Arrays.copyOf(values, size * 2 * 4);
+        }
+        kinds[size] = kind;
+        categories[size] = (byte) category.ordinal();
+        int offset = size * 4;
+        values[offset] = a;
+        values[offset + 1] = b;
+        values[offset + 2] = c;
+        values[offset + 3] = d;
+        size++;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * Draws the commands on the debug canvas, one path per category.
+     *
+     * @param gc the graphics context of the debug canvas, already cleared
+     * @param snapshot the snapshot of the frame, mapping the map to the canvas
+     */
+    public void flush(GraphicsContext gc, RenderSnapshot snapshot) {
+        gc.setLineWidth(1);
+        for (Category category : Category.values()) {
+            gc.beginPath();
+            boolean isEmpty = true;
+            for (int i = 0; i < size; i++) {
+                if (categories[i] != category.ordinal())
+                    continue;
+                isEmpty = false;
+                int offset = i * 4;
+                float x1 = snapshot.toCanvasX(values[offset]), y1 = snapshot.toCanvasY(values[offset + 1]);
+                switch (kinds[i]) {
+                    case rect -> gc.rect(x1, y1, values[offset + 2] * snapshot.getScale(), values[offset + 3] * snapshot.getScale());
+                    case line, arrow -> {
+                        float x2 = snapshot.toCanvasX(values[offset + 2]), y2 = snapshot.toCanvasY(values[offset + 3]);
+                        gc.moveTo(x1, y1);
+                        gc.lineTo(x2, y2);
+                        if (kinds[i] == arrow) {
+                            double angle = Math.atan2(y2 - y1, x2 - x1);
+                            gc.moveTo(x2 - markerSize * Math.cos(angle - Math.PI / 6), y2 - markerSize * Math.sin(angle - Math.PI / 6));
+                            gc.lineTo(x2, y2);
+                            gc.lineTo(x2 - markerSize * Math.cos(angle + Math.PI / 6), y2 - markerSize * Math.sin(angle + Math.PI / 6));
+                        }
+                    }
+                    default -> {
+                        gc.moveTo(x1 - markerSize / 2, y1 - markerSize / 2);
+                        gc.lineTo(x1 + markerSize / 2, y1 + markerSize / 2);
+                        gc.moveTo(x1 - markerSize / 2, y1 + markerSize / 2);
+                        gc.lineTo(x1 + markerSize / 2, y1 - markerSize / 2);
+                    }
+                }
+            }
+            if (!isEmpty) {
+                gc.setStroke(category.color);
+                gc.stroke();
+            }
+        }
+    }
+}
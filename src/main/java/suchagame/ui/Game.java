@@ -3,6 +3,7 @@ package suchagame.ui;
 import javafx.animation.KeyFrame;
 import javafx.animation.Timeline;
 import javafx.application.Application;
+import javafx.application.Platform;
 import javafx.fxml.FXMLLoader;
 import javafx.geometry.BoundingBox;
 import javafx.scene.Parent;
@@ -17,12 +18,17 @@ import javafx.scene.layout.AnchorPane;
 import javafx.stage.Stage;
 import javafx.util.Duration;
 import suchagame.ecs.EntityManager;
+import suchagame.ecs.RandomManager;
 import suchagame.ecs.SystemManager;
-import suchagame.ecs.component.FlagComponent;
-import suchagame.ecs.entity.Entity;
-import suchagame.ecs.entity.Mob;
 import suchagame.ecs.entity.Player;
-import suchagame.ecs.entity.Projectile;
+import suchagame.ecs.system.InputSystem;
+import suchagame.ecs.system.SpawnSystem;
+import suchagame.jfr.FlightRecording;
+import suchagame.replay.InputRecording;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Map;
 
 /**
  * Main class of the game. Initializes the game loop and the game scene.
@@ -35,22 +41,34 @@ public class Game extends Application {
     public static Parent root;
     public static Canvas canvas;
     public static GraphicsContext gc;
+    // overlay canvas of the debug commands, above the world and under the HUD
+    public static GraphicsContext debugGc;
     public static Camera camera;
     public static BoundingBox freeSpace;
-    public static boolean lightEnabled = true;
+    public static volatile boolean lightEnabled = true;
     public static HUD hud;
     public static NPCMenu npcMenu;
 
     public static EntityManager em;
     public static SystemManager sm;
+    public static RandomManager rm;
+
+    static GameLoop gameLoop;
 
-    private static GameLoop gameLoop;
+    // whether the world is simulated without display (e.g. headless runs), thus no image nor node is created
+    public static boolean headless = false;
 
     public static Debug debug;
 
-    private static boolean isGameRunning;
+    private static volatile boolean isGameRunning;
     public static GameMode gameMode = GameMode.NORMAL;
 
+    // seed of the session, recorded along the input stream to replay the session
+    public static long seed = System.nanoTime();
+
+    // file the input stream is recorded to (e.g. --record=session.rec), null if not recording
+    private static Path recordPath;
+
     /**
      * Main method of the game. Launches the game.
      * @param args command line arguments
@@ -72,31 +90,56 @@ public class Game extends Application {
         canvas = (Canvas) root.lookup("#game_canvas");
         gc = canvas.getGraphicsContext2D();
         gc.setImageSmoothing(false);
+        debugGc = ((Canvas) root.lookup("#debug_canvas")).getGraphicsContext2D();
 
         scene = new Scene(root, width, height);
 
+        Map<String, String> parameters = getParameters().getNamed();
+        if (parameters.containsKey("seed"))
+            seed = Long.parseLong(parameters.get("seed"));
+
+        // flight recording of the session (e.g. --jfr=session.jfr), dumped on F7 or at the end of the session
+        if (parameters.containsKey("jfr"))
+            FlightRecording.enable(Path.of(parameters.get("jfr")));
+
         // ecs init
+        rm = new RandomManager(seed);
         em = new EntityManager();
         em.initEntities();
         sm = new SystemManager();
 
+        if (parameters.containsKey("record")) {
+            recordPath = Path.of(parameters.get("record"));
+            sm.get(InputSystem.class).startRecording(seed);
+        } else {
+            // a recorded session spawns as many mobs per tick as its replay, the others spawn within a time budget
+            sm.get(SpawnSystem.class).useTimeBudget();
+        }
+
         hud = new HUD((AnchorPane) root.lookup("#game_hud"));
         npcMenu = new NPCMenu((AnchorPane) root.lookup("#game_npc_menu"));
 
-        // camera alter scale on scroll
-        scene.addEventHandler(ScrollEvent.SCROLL, event -> camera.alterScale((float) event.getDeltaY() / 1000 * 25f));
+        // camera alter scale on scroll, applied by the simulation
+        scene.addEventHandler(ScrollEvent.SCROLL, event -> {
+            float delta = (float) event.getDeltaY() / 1000 * 25f;
+            sm.post(() -> camera.alterScale(delta));
+        });
 
-        // toggle light on space
+        // toggle light on space, dump or start the flight recording on F7
         scene.addEventHandler(KeyEvent.KEY_PRESSED, event -> {
             if (event.getCode() == KeyCode.SPACE) {
                 lightEnabled = !lightEnabled;
-                Game.canvas.setEffect(null);
+            }
+            if (event.getCode() == KeyCode.F7 && FlightRecording.isEnabled()) {
+                FlightRecording.toggle();
             }
         });
 
         camera = new Camera();
-        gameLoop = new GameLoop();
         isGameRunning = true;
+        // frame pacing, every pulse of the screen (i.e. vsync) unless capped (e.g. --pacing=30)
+        String pacing = parameters.getOrDefault("pacing", "vsync");
+        gameLoop = new GameLoop(pacing.equals("vsync") ? 0 : Integer.parseInt(pacing));
         debug = new Debug((AnchorPane) root.lookup("#game_debug"));
         initMods();
 
@@ -106,9 +149,37 @@ public class Game extends Application {
         stage.show();
     }
 
+    /**
+     * Stops the simulation and saves the eventual input and flight recordings when the application is closed.
+     */
+    @Override
+    public void stop() {
+        isGameRunning = false;
+        if (gameLoop != null)
+            gameLoop.stop();
+        saveRecording();
+        FlightRecording.stop();
+    }
+
+    /**
+     * Saves the input recording of the session if the session is recorded.
+     */
+    private static void saveRecording() {
+        if (recordPath == null)
+            return;
+        InputRecording recording = sm.get(InputSystem.class).getRecording();
+        try {
+            recording.save(recordPath);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        recordPath = null;
+    }
+
     /**
      * Ends the game. Stops the game loop and removes all entities and systems.
      * Finally, displays the end game screen with the given message.
+     * It may be called by the simulation thread, the screen is then built on the application thread.
      * @param end_message the message to be displayed
      */
     public static void endGame(String end_message) {
@@ -116,6 +187,20 @@ public class Game extends Application {
             return;
 
         isGameRunning = false;
+        // no window to tear down (e.g. replay harness)
+        if (gameLoop == null)
+            return;
+
+        Platform.runLater(() -> showEndScreen(end_message));
+    }
+
+    /**
+     * Waits for the end of the simulation, tears down the world and displays the end game screen.
+     * @param end_message the message to be displayed
+     */
+    private static void showEndScreen(String end_message) {
+        saveRecording();
+        FlightRecording.stop();
         Game.gameLoop.stop();
         Game.debug.stop();
         Game.sm.removeAllSystems();
@@ -165,38 +250,29 @@ public class Game extends Application {
 
 
     public void initMods() {
-        // toggle god mode on F5
+        // toggle god mode on F5, applied and recorded by the input system
         scene.addEventHandler(KeyEvent.KEY_PRESSED, event -> {
             if (event.getCode() == KeyCode.F5) {
-                gameMode = (gameMode != GameMode.GOD) ? GameMode.GOD : GameMode.NORMAL;
-                Game.em.getPlayer().getComponent(FlagComponent.class).setFlags(isGameMode(GameMode.GOD));
-                Game.em.toggleFlagInModel(Projectile.class, "fireball", "noClip");
-                for (Entity e : Game.em.getEntities()) {
-                    // check if entity is mob
-                    if (e instanceof Mob) {
-                        e.getComponent(FlagComponent.class).setFlags(false);
-                    }
-                }
+                sm.get(InputSystem.class).command(InputSystem.Command.GOD_MODE, "");
             }
         });
-        // toggle hardcore mode on F6
+        // toggle hardcore mode on F6, applied and recorded by the input system
         scene.addEventHandler(KeyEvent.KEY_PRESSED, event -> {
             if (event.getCode() == KeyCode.F6) {
-                gameMode = (gameMode != GameMode.HARDCORE) ? GameMode.HARDCORE : GameMode.NORMAL;
-                for (Entity e : Game.em.getEntities()) {
-                    // check if entity is mob
-                    if (e instanceof Mob) {
-                        e.getComponent(FlagComponent.class).setFlags(isGameMode(GameMode.HARDCORE));
-                    }
-                    Game.em.getPlayer().getComponent(FlagComponent.class).setFlags(isGameMode(GameMode.GOD));
-                    Game.em.toggleFlagInModel(Projectile.class, "fireball", "noClip");
-                }
+                sm.get(InputSystem.class).command(InputSystem.Command.HARDCORE_MODE, "");
             }
         });
     }
 
-    private boolean isGameMode(GameMode gameMode) {
-        return Game.gameMode == gameMode;
+    public static boolean isGameRunning() {
+        return isGameRunning;
+    }
+
+    /**
+     * Marks the game as running when it is driven without a window (e.g. replay harness).
+     */
+    public static void startWithoutWindow() {
+        isGameRunning = true;
     }
 
     public enum GameMode {
@@ -1,56 +1,241 @@
 package suchagame.ui;
 
-import javafx.animation.KeyFrame;
-import javafx.animation.Timeline;
-import javafx.util.Duration;
+import javafx.animation.AnimationTimer;
+import suchagame.ecs.component.InventoryComponent;
+import suchagame.ecs.component.StatsComponent;
+import suchagame.ecs.component.TransformComponent;
+import suchagame.ecs.entity.Player;
+import suchagame.ecs.system.GameplaySystem;
+import suchagame.ecs.system.SpawnSystem;
+import suchagame.utils.FrameTimeHistogram;
+import suchagame.utils.Profiler;
+import suchagame.utils.TripleBuffer;
+import suchagame.utils.Vector2f;
 
-import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
 
 /**
  * The game loop.
+ * The simulation runs on its own thread and publishes a snapshot of the world at the end of each tick,
+ * while the application thread only draws the latest snapshot, thus simulating and drawing overlap.
+ * Drawing follows the pulses of JavaFX (i.e. the vsync of the screen), either on every pulse or capped
+ * to a frame rate, and the durations between the frames drawn are recorded in a histogram.
  */
 public class GameLoop {
-    Timeline gameLoop;
-    static final int framerate = 60;
-    static final long frameDuration = 1000 / framerate;
-    static final int sampleFrameSize = 16;
-    static final int samplePeriod = 1000 * sampleFrameSize;
-
-    static float fps;
-    private int frameCount = 0;
-
-    /**
-     * Creates the game loop.
-     */
-    public GameLoop() {
-        AtomicLong currentTime = new AtomicLong();
-        AtomicLong lastTime = new AtomicLong();
-        lastTime.set(System.currentTimeMillis());
-        this.gameLoop =  new Timeline(new KeyFrame(Duration.millis(frameDuration), event -> {
-            if (Game.lightEnabled)
-                Light.shimmeringLight();
-
-            Game.gc.clearRect(0, 0, Game.width, Game.height);
-            Game.camera.render(Game.gc);
-            Game.sm.update();
-            frameCount++;
-
-            // calculate average fps every sample period (e.g. 16 frames)
-            if (frameCount % sampleFrameSize == 0) {
-                currentTime.set(System.currentTimeMillis());
-                long timeElapsed = currentTime.get() - lastTime.get();
-                lastTime.set(currentTime.get());
-                GameLoop.fps = (float) samplePeriod / timeElapsed;
+    private final AnimationTimer gameLoop;
+    // ticks of the simulation per second
+    public static final int framerate = 60;
+    // ticks of delay after which the simulation stops catching up
+    static final int maxCatchUpTicks = 16;
+    // number of last frames of the frame time histogram
+    static final int histogramWindow = 512;
+
+    // pulse timestamp of the last frame drawn and minimum duration between two frames (0 to draw every pulse)
+    private long lastFrameTime = -1;
+    private final long minFrameDuration;
+    // durations between the frames drawn, only accessed by the application thread
+    private final FrameTimeHistogram frameTimes = new FrameTimeHistogram(histogramWindow);
+    // durations of the drawing of the frames by the application thread
+    private final FrameTimeHistogram drawTimes = new FrameTimeHistogram(histogramWindow, 10_000);
+
+    private final Thread simulation;
+    private volatile boolean isRunning = true;
+
+    // snapshots written by the simulation thread and drawn by the application thread
+    private final TripleBuffer<RenderSnapshot> snapshots = new TripleBuffer<>(RenderSnapshot::new);
+    // snapshot drawn last, only accessed by the application thread
+    private RenderSnapshot snapshot;
+    private int npcMenuToggles = 0;
+    // whether the debug canvas holds commands of a previous frame
+    private boolean isDebugCanvasDirty = false;
+
+    /**
+     * Creates the game loop and starts the simulation thread.
+     *
+     * @param frameCap the maximum number of frames drawn per second, 0 to draw on every pulse (i.e. vsync)
+     */
+    public GameLoop(int frameCap) {
+        this.simulation = new Thread(this::simulate, "simulation");
+        this.simulation.setDaemon(true);
+        this.simulation.start();
+
+        // a frame is due slightly before the cap, so that a pulse a bit early is not skipped
+        this.minFrameDuration = (frameCap > 0) ? 1_000_000_000L / frameCap * 9 / 10 : 0;
+        this.gameLoop = new AnimationTimer() {
+            @Override
+            public void handle(long now) {
+                pulse(now);
             }
-        }));
-        this.gameLoop.setCycleCount(Timeline.INDEFINITE);
-        this.gameLoop.play();
+        };
+        this.gameLoop.start();
     }
 
     /**
-     * Stops the game loop.
+     * Draws a frame on the pulse unless the frame cap is reached, and records the time since the last frame.
+     *
+     * @param now the timestamp of the pulse in nanoseconds
+     */
+    private void pulse(long now) {
+        if (lastFrameTime >= 0) {
+            if (now - lastFrameTime < minFrameDuration)
+                return;
+            frameTimes.record(now - lastFrameTime);
+        }
+        lastFrameTime = now;
+        draw();
+    }
+
+    /**
+     * Runs the ticks of the simulation at the frame rate until the game ends.
+     */
+    private void simulate() {
+        long tickDuration = 1_000_000_000L / framerate;
+        long nextTick = System.nanoTime();
+        while (isRunning && Game.isGameRunning()) {
+            tick();
+
+            nextTick += tickDuration;
+            long delay = nextTick - System.nanoTime();
+            if (delay > 0)
+                LockSupport.parkNanos(delay);
+            else if (delay < -tickDuration * maxCatchUpTicks)
+                // too late to catch up (e.g. after a pause of the process), resume from now
+                nextTick = System.nanoTime();
+        }
+    }
+
+    /**
+     * Updates the world by one tick and publishes its snapshot, with the time taken by each system.
+     */
+    private void tick() {
+        Profiler profiler = Game.sm.getProfiler();
+        profiler.beginTick();
+        profiler.enter(Profiler.Section.CAMERA);
+        Game.camera.update();
+        profiler.enter(Profiler.Section.OTHER);
+        Game.sm.update();
+        // the world is torn down by the end screen
+        if (!Game.isGameRunning())
+            return;
+
+        RenderSnapshot back = snapshots.getBack();
+        back.clear();
+        profiler.enter(Profiler.Section.CAMERA);
+        Game.camera.snapshot(back);
+        profiler.enter(Profiler.Section.OTHER);
+        Game.sm.render(back);
+        back.setDebugDraw(DebugDraw.swap(back.getDebugDraw()));
+        snapshotPlayer(back);
+        profiler.endTick(Game.sm.getTick(), Game.em.getEntityCount());
+        back.setProfile(profiler);
+        snapshots.publish();
+    }
+
+    /**
+     * Saves the state of the player and of the engine displayed by the HUD and the debug overlay.
+     *
+     * @param snapshot the snapshot of the frame
+     */
+    private void snapshotPlayer(RenderSnapshot snapshot) {
+        Player player = Game.em.getPlayer();
+        StatsComponent statsComponent = player.getComponent(StatsComponent.class);
+        GameplaySystem gameplaySystem = Game.sm.get(GameplaySystem.class);
+        SpawnSystem spawnSystem = Game.sm.get(SpawnSystem.class);
+
+        Vector2f position = player.getComponent(TransformComponent.class).getPosition();
+        snapshot.setPlayerPosition(position.getX(), position.getY());
+        snapshot.setStats(
+                statsComponent.getObservableStat("hp"), statsComponent.getStat("hp_max"),
+                statsComponent.getObservableStat("mp"), statsComponent.getStat("mp_max")
+        );
+        snapshot.setInventory(
+                player.getComponent(InventoryComponent.class).getSlimeDropAmount(),
+                gameplaySystem.getAmountOfCurrentConsumable(),
+                player.getHandItems()
+        );
+        snapshot.setNPC(gameplaySystem.isNearNPC(), gameplaySystem.getNPCMenuToggles());
+        snapshot.setEngine(
+                Game.em.getEntityCount(),
+                spawnSystem.getBacklogSize(), spawnSystem.getLastLatency(), spawnSystem.getAverageSpawnTime()
+        );
+    }
+
+    /**
+     * Draws the latest snapshot published by the simulation.
+     */
+    private void draw() {
+        RenderSnapshot snapshot = snapshots.acquire();
+        if (snapshot == null)
+            return;
+        this.snapshot = snapshot;
+
+        long start = System.nanoTime();
+        Game.gc.clearRect(0, 0, Game.width, Game.height);
+        snapshot.render(Game.gc);
+        Light.render(Game.gc, snapshot);
+        drawDebug(snapshot);
+        Game.hud.update(snapshot);
+        drawTimes.record(System.nanoTime() - start);
+
+        if (snapshot.getNPCMenuToggles() != npcMenuToggles) {
+            npcMenuToggles = snapshot.getNPCMenuToggles();
+            Game.npcMenu.toggleNPCMenuView();
+        }
+    }
+
+    /**
+     * Flushes the debug commands of the snapshot on the debug canvas, cleared once the overlay is disabled.
+     *
+     * @param snapshot the snapshot of the frame
+     */
+    private void drawDebug(RenderSnapshot snapshot) {
+        DebugDraw debugDraw = snapshot.getDebugDraw();
+        if (!isDebugCanvasDirty && debugDraw.getSize() == 0)
+            return;
+        Game.debugGc.clearRect(0, 0, Game.width, Game.height);
+        debugDraw.flush(Game.debugGc, snapshot);
+        isDebugCanvasDirty = debugDraw.getSize() > 0;
+    }
+
+    /**
+     * Returns the durations between the last frames drawn, to be used by the application thread only.
+     *
+     * @return the frame time histogram
+     */
+    public FrameTimeHistogram getFrameTimes() {
+        return frameTimes;
+    }
+
+    /**
+     * Returns the durations of the drawing of the last frames, to be used by the application thread only.
+     *
+     * @return the draw time histogram
+     */
+    public FrameTimeHistogram getDrawTimes() {
+        return drawTimes;
+    }
+
+    /**
+     * Returns the snapshot drawn last, to be used by the application thread only.
+     *
+     * @return the snapshot or null if nothing was drawn yet
+     */
+    public RenderSnapshot getSnapshot() {
+        return snapshot;
+    }
+
+    /**
+     * Stops the game loop and waits for the end of the simulation thread.
      */
     public void stop() {
         this.gameLoop.stop();
+        this.isRunning = false;
+        if (Thread.currentThread() != simulation) {
+            try {
+                simulation.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
     }
 }
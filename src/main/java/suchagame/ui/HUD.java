@@ -10,7 +10,6 @@ import javafx.scene.shape.Circle;
 import javafx.scene.text.Font;
 import javafx.util.Pair;
 import suchagame.ecs.component.InventoryComponent;
-import suchagame.ecs.component.StatsComponent;
 import suchagame.ecs.entity.Item;
 import suchagame.ecs.system.GameplaySystem;
 import suchagame.utils.Utils;
@@ -42,6 +41,11 @@ public class HUD {
     private Label consumableItemAmount;
     private Label slimeDropAmount;
 
+    // values currently displayed, to only update the nodes when a value of the snapshot changes
+    private float displayedHp = Float.NaN, displayedMp = Float.NaN;
+    private int displayedSlimeDropAmount = -1, displayedConsumableAmount = -1;
+    private final Item[] displayedHandItems = new Item[Item.ItemType.values().length];
+
     /**
      * Initializes all HUD elements and load custom font
      * @param root root pane
@@ -199,22 +203,55 @@ public class HUD {
         return customFont;
     }
 
+    /**
+     * update the HUD with the player state of the snapshot of the frame
+     * @param snapshot the snapshot of the frame
+     */
+    public void update(RenderSnapshot snapshot) {
+        if (snapshot.getHp() != displayedHp) {
+            displayedHp = snapshot.getHp();
+            updateStatBar("hp", displayedHp, snapshot.getHpMax());
+        }
+        if (snapshot.getMp() != displayedMp) {
+            displayedMp = snapshot.getMp();
+            updateStatBar("mp", displayedMp, snapshot.getMpMax());
+        }
+        if (snapshot.getSlimeDropAmount() != displayedSlimeDropAmount) {
+            displayedSlimeDropAmount = snapshot.getSlimeDropAmount();
+            updateSlimeDropAmount(displayedSlimeDropAmount);
+        }
+        if (snapshot.getConsumableAmount() != displayedConsumableAmount) {
+            displayedConsumableAmount = snapshot.getConsumableAmount();
+            updateConsumableItemAmount(displayedConsumableAmount);
+        }
+        for (Item.ItemType type : Item.ItemType.values()) {
+            Item item = snapshot.getHandItem(type);
+            if (item != null && item != displayedHandItems[type.ordinal()]) {
+                displayedHandItems[type.ordinal()] = item;
+                updateHandSlot(item);
+            }
+        }
+    }
+
     /**
      * update the slime drop amount
+     * @param amount the new amount
      */
-    public void updateSlimeDropAmount() {
-        slimeDropAmount.setText(String.valueOf(Game.em.getPlayer().getComponent(InventoryComponent.class).getSlimeDropAmount()));
+    public void updateSlimeDropAmount(int amount) {
+        slimeDropAmount.setText(String.valueOf(amount));
     }
 
     /**
      * update the stat bar of the given stat tag
+     * @param statTag the tag of the stat (e.g. hp)
+     * @param newStatValue the new value of the stat
+     * @param maxStatValue the maximum value of the stat
      */
-    public void updateStatBar(String statTag, float newStatValue) {
+    public void updateStatBar(String statTag, float newStatValue, float maxStatValue) {
         /*
             as we have three possible icons for each stat (full, half, empty)
             we need to calculate how many full, half and empty icons we need to display
          */
-        float maxStatValue = Game.em.getPlayer().getComponent(StatsComponent.class).getStat(String.format("%s_max", statTag));
         int fullSymbolCount = (int) Math.floor(statsIconsCount * newStatValue / maxStatValue);
         int halfSymbolCount = (statsIconsCount * newStatValue / maxStatValue) % 1f > 0.5f ? 1: 0;
         int statIconIndex = IntStream.range(0, statsIcons.length)
@@ -255,16 +292,14 @@ public class HUD {
         Image itemImage = itemIcons.get(item.getTag());
         ImageView itemImageView = handItemsViews.get(item.getType());
         itemImageView.setImage(itemImage);
-        if (item.getType() == Item.ItemType.CONSUMABLE) {
-            updateConsumableItemAmount();
-        }
     }
 
     /**
      * update the consumable item amount
+     * @param amount the new amount
      */
-    public void updateConsumableItemAmount() {
-        String newAmount = String.valueOf(Game.sm.get(GameplaySystem.class).getAmountOfCurrentConsumable());
+    public void updateConsumableItemAmount(int amount) {
+        String newAmount = String.valueOf(amount);
         consumableItemAmount.setText(newAmount);
         consumableItemAmount.setLayoutX(362 - (newAmount.length() - 1) * 4);
     }
@@ -2,6 +2,7 @@ package suchagame.ui;
 
 import javafx.animation.KeyFrame;
 import javafx.animation.Timeline;
+import javafx.application.Platform;
 import javafx.scene.control.Label;
 import javafx.scene.image.Image;
 import javafx.scene.image.ImageView;
@@ -10,7 +11,7 @@ import javafx.scene.layout.AnchorPane;
 import javafx.util.Duration;
 import suchagame.ecs.component.InventoryComponent;
 import suchagame.ecs.entity.Item;
-import suchagame.ecs.system.GameplaySystem;
+import suchagame.ecs.system.InputSystem;
 import suchagame.utils.Utils;
 
 import java.util.ArrayList;
@@ -47,7 +48,8 @@ public class NPCMenu {
         initMouseControl();
 
         checkPlayerPosition = new Timeline(new KeyFrame(Duration.millis(50), event -> {
-            if (!Game.sm.get(GameplaySystem.class).isNearNPC()) {
+            RenderSnapshot snapshot = Game.gameLoop.getSnapshot();
+            if (snapshot != null && !snapshot.isNearNPC()) {
                 toggleNPCMenuView();
             }
         }));
@@ -58,34 +60,25 @@ public class NPCMenu {
      * Initializes the mouse control for the NPC menu e.g. the player can buy items by clicking on them.
      */
     private void initMouseControl() {
-        Map<Item, Integer> npcInventory = Game.em.getNPC().getComponent(InventoryComponent.class).getInventory();
-        InventoryComponent inventoryComponent = Game.em.getPlayer().getComponent(InventoryComponent.class);
-        Map<Item, Integer> playerInventory = inventoryComponent.getInventory();
-
         for (AnchorPane itemContainer : itemContainers) {
             itemContainer.addEventHandler(MouseEvent.MOUSE_CLICKED, event -> {
-                int index = itemContainers.indexOf(itemContainer);
-                Item item = itemsForSale.get(index);
-                int quantity = npcInventory.get(item);
-                if (inventoryComponent.getSlimeDropAmount() < item.getSlimeDropValue() * 1.5 || npcInventory.get(item) == 0) {
-                    return;
-                }
-                playerInventory.put(
-                        Game.em.getItem("slime_drop"),
-                        (int) (inventoryComponent.getSlimeDropAmount() - item.getSlimeDropValue() * 1.5)
-                );
-
-                npcInventory.put(item, quantity - 1);
-                playerInventory.merge(item, 1, Integer::sum);
-                Game.sm.get(GameplaySystem.class).setHandItem(item);
-                Game.hud.updateHandSlot(item);
-                Game.hud.updateSlimeDropAmount();
-                Label itemLabel = (Label) itemContainer.getChildren().get(0);
-                itemLabel.setText(String.format("%s x%d", item.getTag().replace("_", " "), quantity - 1));
+                Item item = itemsForSale.get(itemContainers.indexOf(itemContainer));
+                // the purchase modifies the inventories, thus it is applied and recorded by the simulation
+                Game.sm.get(InputSystem.class).command(InputSystem.Command.BUY_ITEM, item.getTag());
             });
         }
     }
 
+    /**
+     * Updates the quantity left of an item for sale, called by the simulation once the item is bought.
+     * @param item the item bought
+     * @param quantity the quantity left
+     */
+    public void setItemQuantity(Item item, int quantity) {
+        Label itemLabel = (Label) itemContainers.get(itemsForSale.indexOf(item)).getChildren().get(0);
+        Platform.runLater(() -> itemLabel.setText(String.format("%s x%d", item.getTag().replace("_", " "), quantity)));
+    }
+
 
     /**
      * Fills the NPC menu with all the items for sale (from the NPC inventory).
@@ -0,0 +1,173 @@
+package suchagame.ui;
+
+import javafx.scene.image.Image;
+
+import java.util.Arrays;
+
+/**
+ * Queue of the sprite draws of a frame.
+ * The draws are ordered by layer, then by depth (i.e. the bottom of the sprite on the screen, where its feet are),
+ * then by texture so that consecutive draws share the same source image when they can.
+ * The order of the previous frame is kept and sorted again by insertion, which runs in near-linear time
+ * as entities only move a few pixels between two frames.
+ */
+public class RenderQueue {
+    // draws in the order of the previous frame
+    private DrawCommand[] commands = new DrawCommand[64];
+    private int size = 0;
+    // draws queued for the first time this frame
+    private DrawCommand[] newCommands = new DrawCommand[16];
+    private int newSize = 0;
+    private long frame = 0;
+
+    /**
+     * Starts a new frame, draws that are not queued again are dropped on submit.
+     */
+    public void clear() {
+        frame++;
+    }
+
+    /**
+     * Queues a draw for the current frame.
+     *
+     * @param command the draw, owned by its entity and reused from one frame to the next
+     */
+    public void add(DrawCommand command) {
+        command.frame = frame;
+        if (!command.queued) {
+            command.queued = true;
+            if (newSize == newCommands.length)
+                newCommands = Arrays.copyOf(newCommands, newSize * 2);
+            newCommands[newSize++] = command;
+        }
+    }
+
+    /**
+     * Drops the draws that were not queued this frame, appends the new ones and sorts them.
+     */
+    public void sort() {
+        int kept = 0;
+        for (int i = 0; i < size; i++) {
+            DrawCommand command = commands[i];
+            if (command.frame == frame)
+                commands[kept++] = command;
+            else
+                command.queued = false;
+        }
+        if (kept + newSize > commands.length)
+            commands = Arrays.copyOf(commands, Math.max(commands.length * 2, kept + newSize));
+        java.lang.System.arraycopy(newCommands, 0, commands, kept, newSize);
+        if (kept + newSize < size)
+            Arrays.fill(commands, kept + newSize, size, null);
+        Arrays.fill(newCommands, 0, newSize, null);
+        size = kept + newSize;
+        newSize = 0;
+
+        // insertion sort over the (nearly sorted) order of the previous frame
+        for (int i = 1; i < size; i++) {
+            DrawCommand command = commands[i];
+            int j = i - 1;
+            while (j >= 0 && commands[j].isDrawnAfter(command)) {
+                commands[j + 1] = commands[j];
+                j--;
+            }
+            commands[j + 1] = command;
+        }
+    }
+
+    /**
+     * Sorts the queued draws and renders them into the frame of the snapshot.
+     *
+     * @param snapshot the snapshot drawn by the application thread
+     */
+    public void submit(RenderSnapshot snapshot) {
+        sort();
+        TextureAtlas atlas = TextureAtlas.getInstance();
+        for (int i = 0; i < size; i++) {
+            DrawCommand command = commands[i];
+            snapshot.drawSprite(
+                    atlas.getPixels(command.textureID), (int) command.sprite.getWidth(),
+                    command.sourceX, command.sourceY, command.sourceWidth, command.sourceHeight,
+                    command.x, command.y
+            );
+        }
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * Returns the draw at the given rank of the last sorted frame.
+     *
+     * @param index the rank of the draw
+     * @return the draw
+     */
+    public DrawCommand get(int index) {
+        return commands[index];
+    }
+
+    /**
+     * Draw of a region of a sprite.
+     */
+    public static class DrawCommand {
+        private Image sprite;
+        private int textureID, layer;
+        private int sourceX, sourceY, sourceWidth, sourceHeight;
+        private float x, y, width, height;
+        private float depth;
+
+        // last frame the draw was queued and whether it is in the order of the queue
+        private long frame = -1;
+        private boolean queued = false;
+
+        /**
+         * Sets the source of the draw.
+         *
+         * @param sprite    the source image
+         * @param textureID the id of the source image
+         * @param layer     the layer of the draw, higher layers are drawn on top
+         * @param sourceX   the x of the region in the source image
+         * @param sourceY   the y of the region in the source image
+         * @param width     the width of the region
+         * @param height    the height of the region
+         */
+        public void setSource(Image sprite, int textureID, int layer, int sourceX, int sourceY, int width, int height) {
+            this.sprite = sprite;
+            this.textureID = textureID;
+            this.layer = layer;
+            this.sourceX = sourceX;
+            this.sourceY = sourceY;
+            this.sourceWidth = width;
+            this.sourceHeight = height;
+        }
+
+        /**
+         * Sets the destination of the draw on the canvas, its depth being its bottom.
+         *
+         * @param x      the x position on the canvas
+         * @param y      the y position on the canvas
+         * @param width  the width on the canvas
+         * @param height the height on the canvas
+         */
+        public void setDestination(float x, float y, float width, float height) {
+            this.x = x;
+            this.y = y;
+            this.width = width;
+            this.height = height;
+            this.depth = y + height;
+        }
+
+        private boolean isDrawnAfter(DrawCommand other) {
+            if (layer != other.layer)
+                return layer > other.layer;
+            if (depth != other.depth)
+                return depth > other.depth;
+            return textureID > other.textureID;
+        }
+
+        public float getDepth() {
+            return depth;
+        }
+    }
+}
@@ -0,0 +1,407 @@
+package suchagame.ui;
+
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.image.PixelFormat;
+import javafx.scene.image.WritableImage;
+import suchagame.ecs.entity.Item;
+import suchagame.utils.Profiler;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * State of the world needed to draw a frame (frame of the world, lightmap, debug commands and HUD values).
+ * It is written by the simulation thread at the end of a tick, then only read by the application thread
+ * once published, so that drawing never touches the entities while they are being updated.
+ * The map and the sprites are rendered by the simulation at native resolution (i.e. one pixel per pixel of
+ * the map) into the frame, which the application thread upscales once to the canvas.
+ * Snapshots are reused, their arrays only grow.
+ */
+public class RenderSnapshot {
+    // world at native resolution, as non-premultiplied ARGB pixels
+    private int[] frame = new int[0];
+    private int frameWidth, frameHeight;
+    // position of the frame on the canvas and scale of its pixels
+    private float frameX, frameY;
+    private float scale;
+    // map position under the top left corner of the canvas
+    private float originX, originY;
+    private int spriteCount = 0;
+    private int particleCount = 0;
+
+    // textures the frame is uploaded to by frame size (i.e. one per zoom level), least recently used first,
+    // only accessed by the application thread
+    private static final long frameImageBudget = 32L << 20;
+    private static final LinkedHashMap<Long, WritableImage> frameImages = new LinkedHashMap<>(16, 0.75f, true);
+    private static long frameImagesSize = 0;
+
+    // debug commands appended by the systems during the tick, swapped in by the game loop
+    private DebugDraw debugDraw = new DebugDraw();
+
+    // lightmap multiplied over the frame, as opaque ARGB pixels, and number of lights accumulated into it
+    private final int[] lightmap = new int[Light.mapWidth * Light.mapHeight];
+    private boolean hasLightmap;
+    private int lightCount;
+
+    // player state displayed by the HUD and the debug overlay
+    private float hp, hpMax, mp, mpMax;
+    private float playerX, playerY;
+    private int slimeDropAmount;
+    private int consumableAmount;
+    private final Item[] handItems = new Item[Item.ItemType.values().length];
+    private boolean nearNPC;
+    private int npcMenuToggles;
+
+    // engine state displayed by the debug overlay
+    private int entityCount;
+    private int spawnBacklog;
+    private long spawnLatency, spawnTime;
+
+    // timings of the sections of the last ticks, with their mean and 99th percentile (the last one of the tick)
+    private final long[] profile = new long[Profiler.window * Profiler.Section.values().length];
+    private final float[] profileMeans = new float[Profiler.Section.values().length];
+    private final float[] profilePercentiles = new float[Profiler.Section.values().length + 1];
+    private int profileCount;
+
+    /**
+     * Removes the sprites and the lightmap of the previous frame.
+     */
+    public void clear() {
+        spriteCount = 0;
+        particleCount = 0;
+        hasLightmap = false;
+        lightCount = 0;
+    }
+
+    /**
+     * Sets the geometry of the frame, the pixels of the frame are then rendered by the camera.
+     *
+     * @param width the width of the frame in pixels of the map
+     * @param height the height of the frame in pixels of the map
+     * @param x the x position of the frame on the canvas
+     * @param y the y position of the frame on the canvas
+     * @param scale the size of a pixel of the frame on the canvas
+     */
+    public void setFrame(int width, int height, float x, float y, float scale) {
+        if (frame.length < width * height)
+            frame = new int[width * height];
+        this.frameWidth = width;
+        this.frameHeight = height;
+        this.frameX = x;
+        this.frameY = y;
+        this.scale = scale;
+    }
+
+    /**
+     * Sets the map position under the top left corner of the canvas, to map the debug commands to the canvas.
+     *
+     * @param x the x position in pixels of the map
+     * @param y the y position in pixels of the map
+     */
+    public void setOrigin(float x, float y) {
+        this.originX = x;
+        this.originY = y;
+    }
+
+    public float toCanvasX(float x) {
+        return (x - originX) * scale;
+    }
+
+    public float toCanvasY(float y) {
+        return (y - originY) * scale;
+    }
+
+    /**
+     * Blends a region of a texture over the frame.
+     *
+     * @param texture the pixels of the source texture
+     * @param textureWidth the width of the source texture
+     * @param sourceX the x of the region
+     * @param sourceY the y of the region
+     * @param sourceWidth the width of the region
+     * @param sourceHeight the height of the region
+     * @param x the x position on the canvas
+     * @param y the y position on the canvas
+     */
+    public void drawSprite(int[] texture, int textureWidth, int sourceX, int sourceY, int sourceWidth, int sourceHeight,
+                           float x, float y) {
+        spriteCount++;
+        int destinationX = Math.round((x - frameX) / scale);
+        int destinationY = Math.round((y - frameY) / scale);
+        int minX = Math.max(0, -destinationX), maxX = Math.min(sourceWidth, frameWidth - destinationX);
+        int minY = Math.max(0, -destinationY), maxY = Math.min(sourceHeight, frameHeight - destinationY);
+        for (int i = minY; i < maxY; i++) {
+            int sourceOffset = (sourceY + i) * textureWidth + sourceX;
+            int offset = (destinationY + i) * frameWidth + destinationX;
+            for (int j = minX; j < maxX; j++)
+                frame[offset + j] = Camera.blend(texture[sourceOffset + j], frame[offset + j]);
+        }
+    }
+
+    /**
+     * Blends a square of a single color over the frame.
+     *
+     * @param x the x position in pixels of the map
+     * @param y the y position in pixels of the map
+     * @param size the side of the square in pixels of the map
+     * @param color the color as non-premultiplied ARGB
+     */
+    public void drawParticle(float x, float y, int size, int color) {
+        int destinationX = (int) Math.floor(x) - (int) Math.floor(originX);
+        int destinationY = (int) Math.floor(y) - (int) Math.floor(originY);
+        int minX = Math.max(0, destinationX), maxX = Math.min(frameWidth, destinationX + size);
+        int minY = Math.max(0, destinationY), maxY = Math.min(frameHeight, destinationY + size);
+        for (int i = minY; i < maxY; i++) {
+            int offset = i * frameWidth;
+            for (int j = minX; j < maxX; j++)
+                frame[offset + j] = Camera.blend(color, frame[offset + j]);
+        }
+    }
+
+    /**
+     * Draws the frame upscaled with nearest-neighbor sampling.
+     *
+     * @param gc the graphics context, without image smoothing
+     */
+    public void render(GraphicsContext gc) {
+        WritableImage frameImage = getFrameImage(frameWidth, frameHeight);
+        frameImage.getPixelWriter().setPixels(
+                0, 0, frameWidth, frameHeight, PixelFormat.getIntArgbInstance(), frame, 0, frameWidth
+        );
+        gc.drawImage(frameImage, frameX, frameY, frameWidth * scale, frameHeight * scale);
+    }
+
+    /**
+     * Returns the texture of the given size, reused across zoom changes as long as it fits in the budget.
+     *
+     * @param width the width of the frame
+     * @param height the height of the frame
+     * @return the texture
+     */
+    private static WritableImage getFrameImage(int width, int height) {
+        long key = (long) width << 32 | height;
+        WritableImage frameImage = frameImages.get(key);
+        if (frameImage != null)
+            return frameImage;
+
+        frameImage = new WritableImage(width, height);
+        frameImages.put(key, frameImage);
+        frameImagesSize += (long) width * height * 4;
+        Iterator<WritableImage> iterator = frameImages.values().iterator();
+        while (frameImagesSize > frameImageBudget && iterator.hasNext()) {
+            WritableImage eldest = iterator.next();
+            if (eldest == frameImage)
+                break;
+            frameImagesSize -= (long) eldest.getWidth() * (long) eldest.getHeight() * 4;
+            iterator.remove();
+        }
+        return frameImage;
+    }
+
+    /**
+     * Marks the lightmap as accumulated for this frame.
+     *
+     * @param lightCount the number of lights accumulated into the lightmap
+     */
+    public void setLightCount(int lightCount) {
+        this.hasLightmap = true;
+        this.lightCount = lightCount;
+    }
+
+    /**
+     * Sets the stats of the player.
+     *
+     * @param hp the health of the player
+     * @param hpMax the maximum health of the player
+     * @param mp the mana of the player
+     * @param mpMax the maximum mana of the player
+     */
+    public void setStats(float hp, float hpMax, float mp, float mpMax) {
+        this.hp = hp;
+        this.hpMax = hpMax;
+        this.mp = mp;
+        this.mpMax = mpMax;
+    }
+
+    /**
+     * Sets the inventory of the player.
+     *
+     * @param slimeDropAmount the amount of slime drops
+     * @param consumableAmount the amount of the current consumable
+     * @param handItems the hand items by type
+     */
+    public void setInventory(int slimeDropAmount, int consumableAmount, Map<Item.ItemType, Item> handItems) {
+        this.slimeDropAmount = slimeDropAmount;
+        this.consumableAmount = consumableAmount;
+        for (Item.ItemType type : Item.ItemType.values())
+            this.handItems[type.ordinal()] = handItems.get(type);
+    }
+
+    public void setPlayerPosition(float playerX, float playerY) {
+        this.playerX = playerX;
+        this.playerY = playerY;
+    }
+
+    public void setNPC(boolean nearNPC, int npcMenuToggles) {
+        this.nearNPC = nearNPC;
+        this.npcMenuToggles = npcMenuToggles;
+    }
+
+    /**
+     * Sets the state of the engine.
+     *
+     * @param entityCount the number of entities
+     * @param spawnBacklog the number of mobs waiting to be spawned
+     * @param spawnLatency the latency of the last spawn in ticks
+     * @param spawnTime the average spawn time in nanoseconds
+     */
+    public void setEngine(int entityCount, int spawnBacklog, long spawnLatency, long spawnTime) {
+        this.entityCount = entityCount;
+        this.spawnBacklog = spawnBacklog;
+        this.spawnLatency = spawnLatency;
+        this.spawnTime = spawnTime;
+    }
+
+    public int[] getFrame() {
+        return frame;
+    }
+
+    public int getFrameWidth() {
+        return frameWidth;
+    }
+
+    public int getFrameHeight() {
+        return frameHeight;
+    }
+
+    public float getScale() {
+        return scale;
+    }
+
+    public DebugDraw getDebugDraw() {
+        return debugDraw;
+    }
+
+    public void setDebugDraw(DebugDraw debugDraw) {
+        this.debugDraw = debugDraw;
+    }
+
+    public int[] getLightmap() {
+        return lightmap;
+    }
+
+    public boolean hasLightmap() {
+        return hasLightmap;
+    }
+
+    public int getLightCount() {
+        return lightCount;
+    }
+
+    public float getHp() {
+        return hp;
+    }
+
+    public float getHpMax() {
+        return hpMax;
+    }
+
+    public float getMp() {
+        return mp;
+    }
+
+    public float getMpMax() {
+        return mpMax;
+    }
+
+    public float getPlayerX() {
+        return playerX;
+    }
+
+    public float getPlayerY() {
+        return playerY;
+    }
+
+    public int getSlimeDropAmount() {
+        return slimeDropAmount;
+    }
+
+    public int getConsumableAmount() {
+        return consumableAmount;
+    }
+
+    public Item getHandItem(Item.ItemType type) {
+        return handItems[type.ordinal()];
+    }
+
+    public boolean isNearNPC() {
+        return nearNPC;
+    }
+
+    public int getNPCMenuToggles() {
+        return npcMenuToggles;
+    }
+
+    public int getEntityCount() {
+        return entityCount;
+    }
+
+    public int getSpawnBacklog() {
+        return spawnBacklog;
+    }
+
+    public long getSpawnLatency() {
+        return spawnLatency;
+    }
+
+    public long getSpawnTime() {
+        return spawnTime;
+    }
+
+    public int getSpriteCount() {
+        return spriteCount;
+    }
+
+    public void setParticleCount(int particleCount) {
+        this.particleCount = particleCount;
+    }
+
+    public int getParticleCount() {
+        return particleCount;
+    }
+
+    /**
+     * Copies the timings of the last ticks, to display the time taken by each system.
+     *
+     * @param profiler the profiler of the simulation
+     */
+    public void setProfile(Profiler profiler) {
+        profileCount = profiler.copyTo(profile, profileMeans, profilePercentiles);
+    }
+
+    /**
+     * Returns the timings of the last ticks, oldest first.
+     *
+     * @return the timings in nanoseconds by tick * section count + section
+     */
+    public long[] getProfile() {
+        return profile;
+    }
+
+    public int getProfileCount() {
+        return profileCount;
+    }
+
+    public float getProfileMean(Profiler.Section section) {
+        return profileMeans[section.ordinal()];
+    }
+
+    public float getProfilePercentile(Profiler.Section section) {
+        return profilePercentiles[section.ordinal()];
+    }
+
+    public float getTickPercentile() {
+        return profilePercentiles[profilePercentiles.length - 1];
+    }
+}
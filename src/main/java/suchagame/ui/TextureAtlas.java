@@ -0,0 +1,369 @@
+package suchagame.ui;
+
+import javafx.scene.image.Image;
+import javafx.scene.image.PixelFormat;
+import javafx.scene.image.WritableImage;
+import org.yaml.snakeyaml.Yaml;
+import suchagame.Main;
+import suchagame.utils.Utils;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.zip.CRC32;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Texture atlas packing the images drawn on the canvas (sprite sheets and tile sets) into a few large pages,
+ * so that the draws of a frame share a handful of source textures.
+ * The images are listed in config/atlas.yml and packed into shelves at the first use of the atlas.
+ * The packed pages are cached on disk and reused by the next runs as long as the images do not change.
+ * Images that are not listed are loaded on their own, as a region covering the whole image.
+ * Without a display (@see Game#headless), no image is decoded: the regions only carry the size of the images.
+ */
+public class TextureAtlas {
+    private static final int cacheVersion = 1;
+    private static final Path cachePath = Path.of(System.getProperty("user.home"), ".suchagame", "atlas.cache");
+    private static TextureAtlas instance;
+
+    private final List<Image> textures = new ArrayList<>();
+    private final Map<String, Region> regions = new HashMap<>();
+    // pixels of the textures read for software rendering, by texture id
+    private final Map<Integer, int[]> texturePixels = new HashMap<>();
+
+    /**
+     * Returns the atlas, packing it or loading it from the disk cache at the first call.
+     *
+     * @return the atlas
+     */
+    public static synchronized TextureAtlas getInstance() {
+        if (instance == null)
+            instance = new TextureAtlas("config/atlas.yml");
+        return instance;
+    }
+
+    /**
+     * Constructs the atlas of the images listed in the given config.
+     *
+     * @param configPath the path of the atlas config relative to the resources
+     */
+    @SuppressWarnings("unchecked")
+    private TextureAtlas(String configPath) {
+        Map<String, Object> config;
+        try (InputStream inputStream = Main.class.getResourceAsStream(configPath)) {
+            config = ((Map<String, Map<String, Object>>) new Yaml().load(inputStream)).get("atlas");
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+        if (Game.headless)
+            return;
+        int pageSize = (int) config.get("pageSize");
+        int padding = (int) config.get("padding");
+        List<String> images = (List<String>) config.get("images");
+
+        long key = computeKey(images, pageSize, padding);
+        if (!loadCache(key)) {
+            pack(images, pageSize, padding);
+            saveCache(key);
+        }
+    }
+
+    /**
+     * Returns the region of the given image, loading the image on its own if it is not in the atlas.
+     *
+     * @param fileName the name of the image relative to suchagame/ui/images
+     * @return the region of the image
+     */
+    public synchronized Region getRegion(String fileName) {
+        return regions.computeIfAbsent(fileName, name -> {
+            if (Game.headless)
+                return readHeadlessRegion(name);
+            Image image = new Image(Utils.getPathResource(Game.class, "images/" + name));
+            textures.add(image);
+            return new Region(image, textures.size() - 1, 0, 0, (int) image.getWidth(), (int) image.getHeight());
+        });
+    }
+
+    /**
+     * Reads the size of an image from its PNG header, without decoding it nor needing the toolkit.
+     *
+     * @param fileName the name of the image relative to suchagame/ui/images
+     * @return a region without texture covering the whole image
+     */
+    private static Region readHeadlessRegion(String fileName) {
+        try (DataInputStream input = new DataInputStream(
+                Objects.requireNonNull(Game.class.getResourceAsStream("images/" + fileName)))) {
+            // signature (8 bytes), length and type of the IHDR chunk (8 bytes), then the width and the height
+            input.skipNBytes(16);
+            return new Region(null, -1, 0, 0, input.readInt(), input.readInt());
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Returns the pixels of a texture as non-premultiplied ARGB, read once and shared.
+     *
+     * @param textureID the id of the texture
+     * @return the pixels, row by row
+     */
+    public synchronized int[] getPixels(int textureID) {
+        return texturePixels.computeIfAbsent(textureID, id -> {
+            Image texture = textures.get(id);
+            int width = (int) texture.getWidth(), height = (int) texture.getHeight();
+            int[] pixels = new int[width * height];
+            texture.getPixelReader().getPixels(0, 0, width, height, PixelFormat.getIntArgbInstance(), pixels, 0, width);
+            return pixels;
+        });
+    }
+
+    /**
+     * Returns the number of source textures (atlas pages and images loaded on their own).
+     *
+     * @return the number of textures
+     */
+    public synchronized int getTextureCount() {
+        return textures.size();
+    }
+
+    /**
+     * Packs the images into pages with a shelf algorithm: the images are sorted by height and placed
+     * from left to right on shelves as high as their first image, a new page being started when full.
+     *
+     * @param images the names of the images
+     * @param pageSize the size of a page
+     * @param padding the transparent pixels around each image
+     */
+    private void pack(List<String> images, int pageSize, int padding) {
+        List<String> sortedImages = new ArrayList<>(images);
+        Map<String, Image> sources = new HashMap<>();
+        for (String name : images)
+            sources.put(name, new Image(Utils.getPathResource(Game.class, "images/" + name)));
+        sortedImages.sort(Comparator.comparingDouble((String name) -> sources.get(name).getHeight()).reversed());
+
+        int[] page = null;
+        int pageHeight = 0;
+        int x = 0, y = 0, shelfHeight = 0;
+        List<String> pageImages = new ArrayList<>();
+        List<int[]> pageRects = new ArrayList<>();
+        for (String name : sortedImages) {
+            Image source = sources.get(name);
+            int width = (int) source.getWidth(), height = (int) source.getHeight();
+            int paddedWidth = width + 2 * padding, paddedHeight = height + 2 * padding;
+            // too large for a page, loaded on its own
+            if (paddedWidth > pageSize || paddedHeight > pageSize)
+                continue;
+
+            if (x + paddedWidth > pageSize) {
+                x = 0;
+                y += shelfHeight;
+                shelfHeight = 0;
+            }
+            if (page == null || y + paddedHeight > pageSize) {
+                if (page != null)
+                    addPage(page, pageSize, pageHeight, pageImages, pageRects);
+                page = new int[pageSize * pageSize];
+                pageHeight = 0;
+                x = 0;
+                y = 0;
+                shelfHeight = 0;
+                pageImages.clear();
+                pageRects.clear();
+            }
+
+            source.getPixelReader().getPixels(
+                    0, 0, width, height, PixelFormat.getIntArgbInstance(),
+                    page, (y + padding) * pageSize + x + padding, pageSize
+            );
+            pageImages.add(name);
+            pageRects.add(new int[]{x + padding, y + padding, width, height});
+
+            x += paddedWidth;
+            shelfHeight = Math.max(shelfHeight, paddedHeight);
+            pageHeight = Math.max(pageHeight, y + paddedHeight);
+        }
+        if (page != null)
+            addPage(page, pageSize, pageHeight, pageImages, pageRects);
+    }
+
+    /**
+     * Adds a page to the textures, cropped to its used height, and the regions of its images.
+     *
+     * @param pixels the pixels of the page
+     * @param width the width of the page
+     * @param height the used height of the page
+     * @param images the names of the images of the page
+     * @param rects the rectangles of the images as [x, y, width, height]
+     */
+    private void addPage(int[] pixels, int width, int height, List<String> images, List<int[]> rects) {
+        WritableImage page = new WritableImage(width, height);
+        page.getPixelWriter().setPixels(0, 0, width, height, PixelFormat.getIntArgbInstance(), pixels, 0, width);
+        textures.add(page);
+        for (int i = 0; i < images.size(); i++) {
+            int[] rect = rects.get(i);
+            regions.put(images.get(i), new Region(page, textures.size() - 1, rect[0], rect[1], rect[2], rect[3]));
+        }
+    }
+
+    /**
+     * Computes the key of the cache from the config and the content of the images.
+     *
+     * @param images the names of the images
+     * @param pageSize the size of a page
+     * @param padding the transparent pixels around each image
+     * @return the key of the cache
+     */
+    private static long computeKey(List<String> images, int pageSize, int padding) {
+        CRC32 crc = new CRC32();
+        crc.update(cacheVersion);
+        crc.update(pageSize);
+        crc.update(padding);
+        for (String name : images) {
+            crc.update(name.getBytes(StandardCharsets.UTF_8));
+            try (InputStream inputStream = Objects.requireNonNull(Game.class.getResourceAsStream("images/" + name))) {
+                crc.update(inputStream.readAllBytes());
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        }
+        return crc.getValue();
+    }
+
+    /**
+     * Loads the pages and the regions from the disk cache if it matches the given key.
+     *
+     * @param key the key of the current images
+     * @return whether the cache was loaded
+     */
+    private boolean loadCache(long key) {
+        if (!Files.exists(cachePath))
+            return false;
+        try (DataInputStream input = new DataInputStream(new BufferedInputStream(
+                new GZIPInputStream(Files.newInputStream(cachePath))))) {
+            if (input.readInt() != cacheVersion || input.readLong() != key)
+                return false;
+
+            List<Image> pages = new ArrayList<>();
+            int pageCount = input.readInt();
+            for (int i = 0; i < pageCount; i++) {
+                int width = input.readInt(), height = input.readInt();
+                int[] pixels = new int[width * height];
+                for (int j = 0; j < pixels.length; j++)
+                    pixels[j] = input.readInt();
+                WritableImage page = new WritableImage(width, height);
+                page.getPixelWriter().setPixels(0, 0, width, height, PixelFormat.getIntArgbInstance(), pixels, 0, width);
+                pages.add(page);
+            }
+            Map<String, Region> cachedRegions = new HashMap<>();
+            int regionCount = input.readInt();
+            for (int i = 0; i < regionCount; i++) {
+                String name = input.readUTF();
+                int textureID = input.readInt();
+                cachedRegions.put(name, new Region(
+                        pages.get(textureID), textureID,
+                        input.readInt(), input.readInt(), input.readInt(), input.readInt()
+                ));
+            }
+            textures.addAll(pages);
+            regions.putAll(cachedRegions);
+            return true;
+        } catch (IOException e) {
+            // corrupted or outdated cache, the atlas is packed again
+            return false;
+        }
+    }
+
+    /**
+     * Saves the pages and the regions to the disk cache.
+     *
+     * @param key the key of the current images
+     */
+    private void saveCache(long key) {
+        try {
+            Files.createDirectories(cachePath.getParent());
+            try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(
+                    new GZIPOutputStream(Files.newOutputStream(cachePath))))) {
+                output.writeInt(cacheVersion);
+                output.writeLong(key);
+                output.writeInt(textures.size());
+                for (Image page : textures) {
+                    int width = (int) page.getWidth(), height = (int) page.getHeight();
+                    int[] pixels = new int[width * height];
+                    page.getPixelReader().getPixels(0, 0, width, height, PixelFormat.getIntArgbInstance(), pixels, 0, width);
+                    output.writeInt(width);
+                    output.writeInt(height);
+                    for (int pixel : pixels)
+                        output.writeInt(pixel);
+                }
+                output.writeInt(regions.size());
+                for (Map.Entry<String, Region> entry : regions.entrySet()) {
+                    Region region = entry.getValue();
+                    output.writeUTF(entry.getKey());
+                    output.writeInt(region.getTextureID());
+                    output.writeInt(region.getX());
+                    output.writeInt(region.getY());
+                    output.writeInt(region.getWidth());
+                    output.writeInt(region.getHeight());
+                }
+            }
+        } catch (IOException e) {
+            // the atlas is still usable, it will be packed again by the next run
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Region of an image in a texture of the atlas.
+     */
+    public static class Region {
+        private final Image texture;
+        private final int textureID;
+        private final int x, y, width, height;
+
+        public Region(Image texture, int textureID, int x, int y, int width, int height) {
+            this.texture = texture;
+            this.textureID = textureID;
+            this.x = x;
+            this.y = y;
+            this.width = width;
+            this.height = height;
+        }
+
+        public Image getTexture() {
+            return texture;
+        }
+
+        public int getTextureID() {
+            return textureID;
+        }
+
+        public int getX() {
+            return x;
+        }
+
+        public int getY() {
+            return y;
+        }
+
+        public int getWidth() {
+            return width;
+        }
+
+        public int getHeight() {
+            return height;
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package suchagame.utils;
+
+/**
+ * Histogram of the durations of the last frames, giving their percentiles and jitter.
+ * The durations are kept in a ring of a fixed number of frames and counted in bins of a tenth of
+ * a millisecond by default, thus recording a frame and querying a percentile never allocate.
+ * Durations longer than the last bin are counted in it.
+ */
+public class FrameTimeHistogram {
+    // default width of a bin in nanoseconds and number of bins (i.e. up to 100 ms)
+    private static final long defaultBinWidth = 100_000;
+    private static final int binCount = 1000;
+
+    private final long binWidth;
+    private final long[] durations;
+    private final int[] bins = new int[binCount];
+    private int next = 0;
+    private int count = 0;
+    private long sum = 0;
+    // sum of the absolute differences between consecutive durations of the window
+    private long jitterSum = 0;
+
+    /**
+     * Creates an empty histogram.
+     *
+     * @param window the number of last frames kept
+     */
+    public FrameTimeHistogram(int window) {
+        this(window, defaultBinWidth);
+    }
+
+    /**
+     * Creates an empty histogram with bins of the given width (e.g. narrower for durations far below a frame).
+     *
+     * @param window the number of last frames kept
+     * @param binWidth the width of a bin in nanoseconds, the histogram covering a thousand bins
+     */
+    public FrameTimeHistogram(int window, long binWidth) {
+        this.binWidth = binWidth;
+        this.durations = new long[window];
+    }
+
+    /**
+     * Records the duration of a frame, forgetting the oldest one if the window is full.
+     *
+     * @param duration the duration of the frame in nanoseconds
+     */
+    public void record(long duration) {
+        if (count == durations.length) {
+            long oldest = durations[next];
+            bins[getBin(oldest)]--;
+            sum -= oldest;
+            jitterSum -= Math.abs(durations[(next + 1) % durations.length] - oldest);
+            count--;
+        }
+        if (count > 0)
+            jitterSum += Math.abs(duration - durations[(next + durations.length - 1) % durations.length]);
+        durations[next] = duration;
+        bins[getBin(duration)]++;
+        sum += duration;
+        next = (next + 1) % durations.length;
+        count++;
+    }
+
+    /**
+     * Returns the duration under which the given ratio of the frames of the window are.
+     *
+     * @param percentile the ratio between 0 and 1 (e.g. 0.99 for the 99th percentile)
+     * @return the duration in milliseconds, rounded up to the bin, 0 if no frame was recorded
+     */
+    public float getPercentile(float percentile) {
+        if (count == 0)
+            return 0f;
+        int rank = Math.max(1, (int) Math.ceil(percentile * count));
+        int seen = 0;
+        for (int bin = 0; bin < binCount; bin++) {
+            seen += bins[bin];
+            if (seen >= rank)
+                return (bin + 1) * binWidth / 1e6f;
+        }
+        return binCount * binWidth / 1e6f;
+    }
+
+    /**
+     * Returns the mean duration of the frames of the window.
+     *
+     * @return the duration in milliseconds
+     */
+    public float getMean() {
+        return (count == 0) ? 0f : sum / (float) count / 1e6f;
+    }
+
+    /**
+     * Returns the jitter of the frames of the window, i.e. the mean difference between two consecutive durations.
+     *
+     * @return the jitter in milliseconds
+     */
+    public float getJitter() {
+        return (count < 2) ? 0f : jitterSum / (float) (count - 1) / 1e6f;
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    private int getBin(long duration) {
+        return (int) Math.min(binCount - 1, Math.max(0, duration / binWidth));
+    }
+}
@@ -0,0 +1,185 @@
+package suchagame.utils;
+
+import suchagame.jfr.SystemEvent;
+import suchagame.jfr.TickEvent;
+
+import java.util.Arrays;
+
+/**
+ * Profiler of the ticks of the simulation, timing each section of a tick (i.e. each system) in nanoseconds.
+ * The time of a tick is attributed to the section entered last, thus sections nested in another one
+ * (e.g. the collisions checked by the movements) are subtracted from it, and the sections of a tick sum
+ * up to its duration.
+ * The timings of the last ticks are kept in a ring, and the timings of each section in a rolling histogram.
+ * The profiler is only used by the simulation thread, the overlay reads the copy held by the snapshots.
+ * The ticks and the time of their sections are also emitted as flight recorder events while recording.
+ */
+public class Profiler {
+    // number of last ticks kept
+    public static final int window = 240;
+    // width of a bin of the histograms of the sections in nanoseconds (i.e. up to 10 ms)
+    private static final long binWidth = 10_000;
+
+    /**
+     * Sections of a tick, in the order they are stacked.
+     */
+    public enum Section {
+        OTHER("other"),
+        INPUT("input"),
+        SPAWN("spawn"),
+        STATS("stats"),
+        MOVEMENT("movement"),
+        PHYSICS("physics"),
+        ANIMATION("animation"),
+        PARTICLES("particles"),
+        CAMERA("camera"),
+        GRAPHICS("graphics"),
+        LIGHT("light");
+
+        private final String name;
+
+        Section(String name) {
+            this.name = name;
+        }
+
+        public String getName() {
+            return name;
+        }
+    }
+
+    private static final Section[] sections = Section.values();
+
+    // timings of the last ticks, by tick * section count + section, oldest first from next
+    private final long[] timings = new long[window * sections.length];
+    private int next = 0;
+    private int count = 0;
+    private final FrameTimeHistogram[] histograms = new FrameTimeHistogram[sections.length];
+    private final FrameTimeHistogram tickTimes = new FrameTimeHistogram(window, binWidth);
+
+    // section timed since the last switch, and timings of the current tick
+    private Section current = Section.OTHER;
+    private long lastSwitch;
+    private final long[] tickTimings = new long[sections.length];
+    private TickEvent tickEvent = new TickEvent();
+
+    /**
+     * Creates an empty profiler.
+     */
+    public Profiler() {
+        for (int i = 0; i < sections.length; i++)
+            histograms[i] = new FrameTimeHistogram(window, binWidth);
+        lastSwitch = System.nanoTime();
+    }
+
+    /**
+     * Starts timing a tick, the time until the first section is attributed to the other section.
+     */
+    public void beginTick() {
+        Arrays.fill(tickTimings, 0);
+        current = Section.OTHER;
+        tickEvent = new TickEvent();
+        tickEvent.begin();
+        lastSwitch = System.nanoTime();
+    }
+
+    /**
+     * Attributes the time from now on to a section.
+     *
+     * @param section the section entered
+     * @return the section left, to be entered again at the end of the section
+     */
+    public Section enter(Section section) {
+        long now = System.nanoTime();
+        Section previous = current;
+        tickTimings[previous.ordinal()] += now - lastSwitch;
+        current = section;
+        lastSwitch = now;
+        return previous;
+    }
+
+    /**
+     * Ends timing the tick, and records its timings into the ring and the histograms.
+     *
+     * @param tick the tick of the simulation, for the flight recorder events
+     * @param entityCount the number of entities at the end of the tick, for the flight recorder events
+     */
+    public void endTick(long tick, int entityCount) {
+        enter(Section.OTHER);
+        int offset = next * sections.length;
+        long total = 0;
+        for (int i = 0; i < sections.length; i++) {
+            timings[offset + i] = tickTimings[i];
+            histograms[i].record(tickTimings[i]);
+            total += tickTimings[i];
+        }
+        tickTimes.record(total);
+        next = (next + 1) % window;
+        count = Math.min(count + 1, window);
+        commitEvents(tick, entityCount);
+    }
+
+    /**
+     * Emits the flight recorder events of the tick and of its sections, if they are recorded.
+     *
+     * @param tick the tick of the simulation
+     * @param entityCount the number of entities at the end of the tick
+     */
+    private void commitEvents(long tick, int entityCount) {
+        tickEvent.end();
+        if (!tickEvent.shouldCommit())
+            return;
+        tickEvent.tick = tick;
+        tickEvent.entityCount = entityCount;
+        tickEvent.commit();
+
+        for (int i = 0; i < sections.length; i++) {
+            if (tickTimings[i] == 0)
+                continue;
+            SystemEvent systemEvent = new SystemEvent();
+            systemEvent.system = sections[i].getName();
+            systemEvent.tick = tick;
+            systemEvent.time = tickTimings[i];
+            systemEvent.commit();
+        }
+    }
+
+    /**
+     * Copies the timings of the last ticks, oldest first, and the statistics of the sections.
+     *
+     * @param timings the timings by tick * section count + section, of at least window * section count
+     * @param means the mean duration of each section in milliseconds
+     * @param percentiles the 99th percentile of each section in milliseconds, the last one of the whole tick
+     * @return the number of ticks copied
+     */
+    public int copyTo(long[] timings, float[] means, float[] percentiles) {
+        int oldest = (count < window) ? 0 : next;
+        int head = (window - oldest) * sections.length;
+        System.arraycopy(this.timings, oldest * sections.length, timings, 0, head);
+        System.arraycopy(this.timings, 0, timings, head, oldest * sections.length);
+        for (int i = 0; i < sections.length; i++) {
+            means[i] = histograms[i].getMean();
+            percentiles[i] = histograms[i].getPercentile(0.99f);
+        }
+        percentiles[sections.length] = tickTimes.getPercentile(0.99f);
+        return count;
+    }
+
+    /**
+     * Returns the durations of the last ticks.
+     *
+     * @return the histogram of the ticks
+     */
+    public FrameTimeHistogram getTickTimes() {
+        return tickTimes;
+    }
+
+    /**
+     * Returns the durations of a section over the last ticks.
+     *
+     * @param section the section
+     * @return the histogram of the section
+     */
+    public FrameTimeHistogram getHistogram(Section section) {
+        return histograms[section.ordinal()];
+    }
+}
@@ -1,34 +1,61 @@
 package suchagame.utils;
 
-import javafx.animation.KeyFrame;
-import javafx.animation.Timeline;
-import javafx.util.Duration;
+import suchagame.ui.Game;
 
 /**
- * A simple timer class that runs a callback after a specified duration.
+ * A timer running a callback after a duration of game time (@see TimingWheel).
+ * Timers are handles: the same timer can be scheduled again once fired, or rescheduled and cancelled
+ * while pending, without any allocation.
+ * Timers are scheduled by the simulation thread, and their callback runs on it.
  */
-public class Timer {
-    private final Timeline timeline;
+public final class Timer {
+    private final Runnable callback;
+
+    // deadline in ticks of game time and slot of the wheel (-1 if not pending), with the timers of the slot
+    long deadline;
+    int slot = -1;
+    Timer previous, next;
 
     /**
-     * Creates a new timer.
+     * Creates a timer that is not scheduled yet.
+     * @param callback The callback to run after the timer is finished.
+     */
+    public Timer(Runnable callback) {
+        this.callback = callback;
+    }
+
+    /**
+     * Creates a new timer and schedules it on the scheduler of the game.
      * @param duration The duration of the timer in milliseconds.
      * @param callback The callback to run after the timer is finished.
      */
     public Timer(long duration, Runnable callback) {
-        timeline = new Timeline(new KeyFrame(Duration.millis(duration), event -> {
-            if (callback != null) {
-                callback.run();
-            }
-        }));
-        timeline.setCycleCount(1);
-        timeline.play();
+        this(callback);
+        schedule(duration);
+    }
+
+    /**
+     * Schedules the timer on the scheduler of the game, rescheduling it if it is pending.
+     * @param duration The duration of the timer in milliseconds of game time.
+     */
+    public void schedule(long duration) {
+        Game.sm.getScheduler().schedule(this, duration);
     }
 
     /**
-     * Stops the timer.
+     * Stops the timer, its callback is not run.
      */
     public void stop() {
-        timeline.stop();
+        if (isPending())
+            Game.sm.getScheduler().cancel(this);
+    }
+
+    public boolean isPending() {
+        return slot >= 0;
+    }
+
+    void fire() {
+        if (callback != null)
+            callback.run();
     }
 }
@@ -0,0 +1,177 @@
+package suchagame.utils;
+
+/**
+ * Hierarchical timing wheel scheduling the timers in game time, i.e. in ticks of the simulation.
+ * Each level has 64 slots, a slot of a level covering a whole turn of the level below: the timers due
+ * within 64 ticks are in the first level, the next ones in the level covering their deadline, and they
+ * are moved down a level each time the level below completes a turn.
+ * Timers are linked into their slot, thus scheduling and cancelling are O(1) and never allocate.
+ * The wheel is advanced and its timers are scheduled by the simulation thread only.
+ */
+public class TimingWheel {
+    private static final int slotBits = 6;
+    private static final int slotCount = 1 << slotBits;
+    private static final int slotMask = slotCount - 1;
+    private static final int levelCount = 4;
+
+    // first timer of each slot, by level * slotCount + slot
+    private final Timer[] slots = new Timer[levelCount * slotCount];
+    private final int tickRate;
+    private long currentTick = 0;
+
+    private boolean paused = false;
+    private float timeScale = 1f;
+    // fraction of tick of game time accumulated by the time scale
+    private float pendingTime = 0f;
+
+    /**
+     * Creates an empty wheel.
+     *
+     * @param tickRate the number of ticks per second of game time, to convert the durations
+     */
+    public TimingWheel(int tickRate) {
+        this.tickRate = tickRate;
+    }
+
+    /**
+     * Advances the game time by one tick of the simulation, scaled by the time scale, and runs the timers due.
+     */
+    public void advance() {
+        if (paused)
+            return;
+        pendingTime += timeScale;
+        while (pendingTime >= 1f) {
+            pendingTime -= 1f;
+            step();
+        }
+    }
+
+    /**
+     * Schedules a timer, rescheduling it if it is already pending.
+     *
+     * @param timer the timer
+     * @param duration the duration in milliseconds of game time
+     */
+    public void schedule(Timer timer, long duration) {
+        if (timer.isPending())
+            unlink(timer);
+        // a timer is due at the next tick at the earliest
+        timer.deadline = currentTick + Math.max(1, (duration * tickRate + 999) / 1000);
+        insert(timer);
+    }
+
+    /**
+     * Cancels a timer, nothing is done if it is not pending.
+     *
+     * @param timer the timer
+     */
+    public void cancel(Timer timer) {
+        if (timer.isPending())
+            unlink(timer);
+    }
+
+    /**
+     * Moves the wheel one tick forward: cascades the levels completing a turn, then runs the timers of the slot.
+     */
+    private void step() {
+        currentTick++;
+        for (int level = 1; level < levelCount; level++) {
+            // the level is only cascaded when all the levels below complete a turn
+            if ((currentTick & ((1L << (slotBits * level)) - 1)) != 0)
+                break;
+            cascade(level * slotCount + (int) ((currentTick >> (slotBits * level)) & slotMask));
+        }
+
+        int slot = (int) (currentTick & slotMask);
+        Timer timer;
+        // the callbacks may schedule or cancel timers, thus the timers are unlinked one at a time
+        while ((timer = slots[slot]) != null) {
+            unlink(timer);
+            if (timer.deadline <= currentTick)
+                timer.fire();
+            else
+                insert(timer);
+        }
+    }
+
+    /**
+     * Moves the timers of a slot down to the levels matching their remaining time.
+     *
+     * @param slot the index of the slot
+     */
+    private void cascade(int slot) {
+        Timer timer = slots[slot];
+        slots[slot] = null;
+        while (timer != null) {
+            Timer next = timer.next;
+            timer.previous = null;
+            timer.next = null;
+            insert(timer);
+            timer = next;
+        }
+    }
+
+    /**
+     * Links the timer into the slot of its deadline.
+     * Timers further than the last level are put in its last turn and moved again when cascaded.
+     *
+     * @param timer the timer
+     */
+    private void insert(Timer timer) {
+        long remaining = timer.deadline - currentTick;
+        int level = 0;
+        while (level < levelCount - 1 && remaining >= 1L << (slotBits * (level + 1)))
+            level++;
+        long deadline = Math.min(timer.deadline, currentTick + (1L << (slotBits * levelCount)) - 1);
+        int slot = level * slotCount + (int) ((deadline >> (slotBits * level)) & slotMask);
+
+        timer.slot = slot;
+        timer.previous = null;
+        timer.next = slots[slot];
+        if (slots[slot] != null)
+            slots[slot].previous = timer;
+        slots[slot] = timer;
+    }
+
+    private void unlink(Timer timer) {
+        if (timer.previous != null)
+            timer.previous.next = timer.next;
+        else
+            slots[timer.slot] = timer.next;
+        if (timer.next != null)
+            timer.next.previous = timer.previous;
+        timer.previous = null;
+        timer.next = null;
+        timer.slot = -1;
+    }
+
+    public long getCurrentTick() {
+        return currentTick;
+    }
+
+    public boolean isPaused() {
+        return paused;
+    }
+
+    /**
+     * Pauses or resumes the game time, the pending timers keep their remaining time.
+     *
+     * @param paused true to pause the game time
+     */
+    public void setPaused(boolean paused) {
+        this.paused = paused;
+    }
+
+    public float getTimeScale() {
+        return timeScale;
+    }
+
+    /**
+     * Sets the speed of the game time relative to the simulation (e.g. 0.5 for a slow motion).
+     *
+     * @param timeScale the number of ticks of game time per tick of the simulation
+     */
+    public void setTimeScale(float timeScale) {
+        this.timeScale = Math.max(0f, timeScale);
+    }
+}
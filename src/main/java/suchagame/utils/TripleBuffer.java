@@ -0,0 +1,67 @@
+package suchagame.utils;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Lock-free exchange of values between a single writer thread and a single reader thread.
+ * The writer fills its back value and publishes it, the reader acquires the latest published value,
+ * and neither ever waits for the other nor sees a value while it is being written.
+ * A third value is needed so that the writer always has a free one while the reader holds the front one
+ * and the latest one is waiting to be acquired.
+ *
+ * @param <T> the type of the exchanged values
+ */
+public class TripleBuffer<T> {
+    // bit set in the state when the middle value was published and not acquired yet
+    private static final int fresh = 4;
+
+    private final Object[] values = new Object[3];
+    private int back = 0;
+    private int front = 1;
+    // whether the reader thread ever acquired a published value
+    private boolean hasFront = false;
+    // index of the middle value and fresh bit
+    private final AtomicInteger state = new AtomicInteger(2);
+
+    /**
+     * Creates the three values.
+     *
+     * @param factory the supplier of the values
+     */
+    public TripleBuffer(Supplier<T> factory) {
+        for (int i = 0; i < values.length; i++)
+            values[i] = factory.get();
+    }
+
+    /**
+     * Returns the value to be written by the writer thread.
+     *
+     * @return the back value
+     */
+    @SuppressWarnings("unchecked")
+    public T getBack() {
+        return (T) values[back];
+    }
+
+    /**
+     * Publishes the back value and gives the writer thread a free one.
+     */
+    public void publish() {
+        back = state.getAndSet(back | fresh) & ~fresh;
+    }
+
+    /**
+     * Acquires the latest published value for the reader thread, which keeps it until the next acquisition.
+     *
+     * @return the latest published value, or null if nothing was published yet
+     */
+    @SuppressWarnings("unchecked")
+    public T acquire() {
+        if ((state.get() & fresh) != 0) {
+            front = state.getAndSet(front) & ~fresh;
+            hasFront = true;
+        }
+        return hasFront ? (T) values[front] : null;
+    }
+}